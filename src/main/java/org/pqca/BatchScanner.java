@@ -0,0 +1,209 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca;
+
+import jakarta.annotation.Nonnull;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.pqca.classpath.JavaClasspathService;
+import org.pqca.errors.CouldNotLoadJavaJars;
+import org.pqca.output.FindingsStream;
+import org.pqca.packages.PackageScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scans the local checkouts listed in a manifest, one path per line ({@code #} starts a comment),
+ * in one process, so that the JVM and engine warm-up is paid once. {@code
+ * CBOMKIT_BATCH_PARALLELISM} repositories (default {@code 1}) are scanned at a time; they share
+ * the jar index and the package scheduler with its memory governor. The CBOMs of each repository
+ * are written into a subdirectory of the output dir named after the checkout, and the outcome of
+ * every repository into {@code batch-summary.tsv}.
+ */
+final class BatchScanner {
+    private static final Logger LOG = LoggerFactory.getLogger(BatchScanner.class);
+
+    private record Repository(@Nonnull File checkout, @Nonnull String name) {}
+
+    private record Result(@Nonnull Repository repository, boolean succeeded, long millis) {}
+
+    @Nonnull private final File manifest;
+    @Nonnull private final File outputDir;
+    private final int parallelism;
+    @Nonnull private final FindingsStream findingsStream = FindingsStream.getInstance();
+
+    BatchScanner(@Nonnull File manifest, @Nonnull File outputDir) {
+        this.manifest = manifest;
+        this.outputDir = outputDir;
+        this.parallelism =
+                Optional.ofNullable(System.getenv("CBOMKIT_BATCH_PARALLELISM"))
+                        .map(Integer::parseInt)
+                        .orElse(1);
+    }
+
+    /**
+     * Scans the repositories of the manifest.
+     *
+     * @return whether the batch could be started, false if the manifest could not be read or the
+     *     jar dependencies could not be loaded; failing repositories are in the summary instead
+     */
+    boolean run() {
+        final List<Repository> repositories;
+        try {
+            repositories = readManifest();
+        } catch (IOException e) {
+            LOG.error("Failed to read the batch manifest {}", manifest, e);
+            return false;
+        }
+        final JavaClasspathService javaClasspathService;
+        try {
+            javaClasspathService =
+                    new JavaClasspathService(new File(BomGenerator.getJavaDependencyJARSPath()));
+        } catch (IllegalStateException e) {
+            LOG.error(e.getMessage(), e);
+            return false;
+        }
+        final PackageScheduler scheduler = PackageScheduler.fromEnvironment();
+        scheduler.getMemoryGovernor().addFlushHook(javaClasspathService::clearCache);
+        LOG.info(
+                "Scanning {} repositories of {}, {} at a time",
+                repositories.size(),
+                manifest,
+                parallelism);
+
+        final long start = System.currentTimeMillis();
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        final List<Future<Result>> futures = new ArrayList<>();
+        for (Repository repository : repositories) {
+            futures.add(
+                    executor.submit(() -> scan(repository, javaClasspathService, scheduler)));
+        }
+        final List<Result> results = new ArrayList<>();
+        try {
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOG.error(e.getMessage(), e);
+        } finally {
+            executor.shutdownNow();
+        }
+        writeSummary(results);
+        LOG.info(
+                "Scanned {} of {} repositories successfully in {} s",
+                results.stream().filter(Result::succeeded).count(),
+                repositories.size(),
+                (System.currentTimeMillis() - start) / 1000);
+        return true;
+    }
+
+    @Nonnull
+    private Result scan(
+            @Nonnull Repository repository,
+            @Nonnull JavaClasspathService javaClasspathService,
+            @Nonnull PackageScheduler scheduler) {
+        final long start = System.currentTimeMillis();
+        final File repositoryOutputDir = new File(outputDir, repository.name());
+        LOG.info("Scanning repository {} into {}", repository.checkout(), repositoryOutputDir);
+        findingsStream.addCheckout(repository.checkout(), repository.name());
+        try {
+            if (!repositoryOutputDir.isDirectory() && !repositoryOutputDir.mkdirs()) {
+                throw new IOException("Failed to create " + repositoryOutputDir);
+            }
+            final BomGenerator bomGenerator =
+                    new BomGenerator(
+                            repository.checkout(),
+                            repositoryOutputDir,
+                            repository.name(),
+                            javaClasspathService,
+                            scheduler);
+            try {
+                Main.scan(bomGenerator);
+            } finally {
+                bomGenerator.release();
+            }
+            return new Result(repository, true, System.currentTimeMillis() - start);
+        } catch (CouldNotLoadJavaJars | IOException | RuntimeException e) {
+            // one failing repository does not stop the batch
+            LOG.error("Failed to scan repository {}: {}", repository.checkout(), e.getMessage(), e);
+            return new Result(repository, false, System.currentTimeMillis() - start);
+        } finally {
+            findingsStream.removeCheckout(repository.checkout());
+        }
+    }
+
+    @Nonnull
+    private List<Repository> readManifest() throws IOException {
+        final List<Repository> repositories = new ArrayList<>();
+        final Set<String> names = new HashSet<>();
+        for (String line : Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8)) {
+            final String path = line.strip();
+            if (path.isEmpty() || path.startsWith("#")) {
+                continue;
+            }
+            final File checkout = new File(path);
+            if (!checkout.isDirectory()) {
+                LOG.warn("Skipping {}, not a directory", checkout);
+                continue;
+            }
+            final String baseName =
+                    checkout.getAbsoluteFile().getName().replaceAll("[^A-Za-z0-9._-]", "_");
+            String name = baseName;
+            for (int i = 2; !names.add(name); i++) {
+                name = baseName + "-" + i;
+            }
+            repositories.add(new Repository(checkout, name));
+        }
+        return repositories;
+    }
+
+    private void writeSummary(@Nonnull List<Result> results) {
+        final File summaryFile = new File(outputDir, "batch-summary.tsv");
+        try (FileWriter writer = new FileWriter(summaryFile)) {
+            for (Result result : results) {
+                writer.write(
+                        (result.succeeded() ? "ok" : "failed")
+                                + "\t"
+                                + result.millis()
+                                + "\t"
+                                + result.repository().name()
+                                + "\t"
+                                + result.repository().checkout()
+                                + "\n");
+            }
+        } catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+        }
+    }
+}
@@ -20,32 +20,57 @@
 package org.pqca;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import org.cyclonedx.Version;
+import java.util.Set;
+import java.util.WeakHashMap;
 import org.cyclonedx.exception.GeneratorException;
-import org.cyclonedx.generators.BomGeneratorFactory;
-import org.cyclonedx.generators.json.BomJsonGenerator;
 import org.cyclonedx.model.Bom;
 import org.cyclonedx.model.Component;
 import org.cyclonedx.model.Metadata;
 import org.cyclonedx.model.OrganizationalEntity;
 import org.cyclonedx.model.Property;
 import org.cyclonedx.model.Service;
+import org.cyclonedx.model.component.evidence.Occurrence;
 import org.cyclonedx.model.metadata.ToolInformation;
+import org.pqca.classpath.JavaClasspathService;
 import org.pqca.errors.CouldNotLoadJavaJars;
+import org.pqca.indexing.DirectoryWalker;
+import org.pqca.indexing.IndexSnapshot;
 import org.pqca.indexing.JavaIndexService;
 import org.pqca.indexing.ProjectModule;
 import org.pqca.indexing.PythonIndexService;
+import org.pqca.metrics.ProgressReporter;
+import org.pqca.metrics.ScanEvents;
+import org.pqca.output.BomWriter;
+import org.pqca.output.Checkpoint;
+import org.pqca.output.CompactBom;
+import org.pqca.output.FindingsStream;
+import org.pqca.output.StringPool;
 import org.pqca.packages.JavaPackageFinderService;
 import org.pqca.packages.PackageMetadata;
+import org.pqca.packages.PackageScheduler;
+import org.pqca.packages.PackageWorkload;
 import org.pqca.packages.PythonPackageFinderService;
+import org.pqca.packages.QuickScan;
+import org.pqca.packages.Shard;
+import org.pqca.scanning.BaselineIndex;
+import org.pqca.scanning.PolicyGate;
+import org.pqca.scanning.ScanWatchdog;
+import org.pqca.scanning.ScannerService;
 import org.pqca.scanning.java.JavaScannerService;
 import org.pqca.scanning.python.PythonScannerService;
 import org.slf4j.Logger;
@@ -56,18 +81,80 @@ public class BomGenerator {
     private static final String ACTION_NAME = "CBOMkit-action";
     private static final String ACTION_ORG = "PQCA";
 
-    @Nonnull private final String javaJarDir;
+    @Nullable private JavaClasspathService javaClasspathService;
     @Nonnull private final File projectDirectory;
     @Nonnull private final File outputDir;
+    @Nonnull private final List<ScanWatchdog.AbandonedFile> abandonedFiles = new ArrayList<>();
+    @Nonnull private final List<Bom> deltaBoms = new ArrayList<>();
+    @Nonnull private final StringPool occurrenceStrings = new StringPool();
+    // package CBOMs held in memory until consolidation, spilled to disk under heap pressure;
+    // weak, so that consolidated CBOMs and CBOMs replaced by rescans are not kept
+    @Nonnull
+    private final Set<CompactBom> retainedBoms = Collections.newSetFromMap(new WeakHashMap<>());
+    @Nonnull private final Runnable spillHook = this::spillRetainedBoms;
+    @Nullable private File spillDir;
+    @Nullable private final Shard shard;
+    @Nonnull private final BomWriter bomWriter;
+    @Nullable private final Checkpoint checkpoint;
+    @Nullable private final IndexSnapshot indexSnapshot;
+    @Nonnull private final ProgressReporter progress = ProgressReporter.getInstance();
+    @Nonnull private final PolicyGate policyGate = PolicyGate.getInstance();
+    @Nonnull private final PackageScheduler scheduler;
+    @Nullable private final String repositoryName;
+    // cleared for rescans, which scan the whole package
+    @Nullable private QuickScan quickScan;
+    // indexed by getPythonWorkloads()
+    @Nullable private PythonIndexService pythonIndexService;
+    @Nullable private List<PackageWorkload> pythonWorkloads;
+    @Nullable private BaselineIndex baseline;
+    private boolean baselineLoaded;
+    @Nullable private DirectoryWalker directoryWalker;
+    private boolean directoryWalked;
+    // latest CBOM of each scanned package in scan order, kept for rescans, see #rescan
+    @Nullable private Map<ScannedPackage, CompactBom> packageBoms;
+
+    private record ScannedPackage(
+            @Nonnull String language, @Nonnull PackageMetadata packageMetadata) {
+        @Nonnull
+        Path packagePath() {
+            return packageMetadata.packageDir().toPath();
+        }
+    }
 
     public BomGenerator(@Nonnull File projectDirectory, File outputDir) {
-        this.javaJarDir = getJavaDependencyJARSPath();
+        this(projectDirectory, outputDir, null, null, PackageScheduler.fromEnvironment());
+    }
+
+    /**
+     * @param repositoryName name of the repository in a batch scan, see {@link BatchScanner}; its
+     *     index snapshot is kept apart, and the GitHub metadata of the job is not attributed to it
+     * @param javaClasspathService jar index shared by the repositories of a batch scan
+     * @param scheduler scheduler shared by the repositories of a batch scan
+     */
+    BomGenerator(
+            @Nonnull File projectDirectory,
+            @Nonnull File outputDir,
+            @Nullable String repositoryName,
+            @Nullable JavaClasspathService javaClasspathService,
+            @Nonnull PackageScheduler scheduler) {
         this.projectDirectory = projectDirectory;
         this.outputDir = outputDir;
+        this.repositoryName = repositoryName;
+        this.javaClasspathService = javaClasspathService;
+        this.scheduler = scheduler;
+        this.shard = Shard.fromEnvironment().orElse(null);
+        this.bomWriter = BomWriter.fromEnvironment();
+        this.checkpoint = Checkpoint.fromEnvironment(outputDir, projectDirectory);
+        this.indexSnapshot = IndexSnapshot.fromEnvironment(projectDirectory, repositoryName);
+        this.quickScan = QuickScan.fromEnvironment();
+        scheduler.getMemoryGovernor().addFlushHook(spillHook);
+        if (this.shard != null) {
+            LOG.info("Scanning shard {} of {}", shard.index(), shard.count());
+        }
     }
 
     @Nonnull
-    private String getJavaDependencyJARSPath() {
+    static String getJavaDependencyJARSPath() {
         File javaJarDir =
                 Optional.ofNullable(System.getenv("CBOMKIT_JAVA_JAR_DIR"))
                         .map(relativeDir -> new File(relativeDir))
@@ -84,24 +171,34 @@ public class BomGenerator {
     }
 
     @Nonnull
-    public List<Bom> generateJavaBoms() throws CouldNotLoadJavaJars {
-        final JavaIndexService javaIndexService = new JavaIndexService(projectDirectory);
+    public List<CompactBom> generateJavaBoms() throws CouldNotLoadJavaJars {
+        if (javaClasspathService == null) {
+            javaClasspathService = new JavaClasspathService(new File(getJavaDependencyJARSPath()));
+            scheduler.getMemoryGovernor().addFlushHook(javaClasspathService::clearCache);
+        }
+        final JavaIndexService javaIndexService =
+                new JavaIndexService(projectDirectory, indexSnapshot, getDirectoryWalker());
         final List<ProjectModule> javaProjectModules = javaIndexService.index(null);
-        final List<Bom> javaBoms = new ArrayList<>();
         final JavaPackageFinderService packageFinder =
-                new JavaPackageFinderService(projectDirectory);
-        for (PackageMetadata pm : packageFinder.findPackages()) {
-            final List<ProjectModule> packageModules =
-                    getPackageModules(javaProjectModules, pm.packageDir());
-            if (!packageModules.isEmpty()) {
-                LOG.info("Scanning java package {}", pm.packageDir());
-                final JavaScannerService javaScannerService =
-                        new JavaScannerService(javaJarDir, pm.packageDir());
-                final Bom javaBom = javaScannerService.scan(packageModules);
-                writeBom(pm, javaBom);
-                javaBoms.add(javaBom);
-            }
-        }
+                new JavaPackageFinderService(
+                        projectDirectory, indexSnapshot, getDirectoryWalker());
+        final List<PackageWorkload> workloads =
+                select(
+                        getWorkloads(packageFinder.findPackages(), javaProjectModules),
+                        javaIndexService.getCryptoTokens(),
+                        // the python files share the file budget of a quick scan
+                        quickScan == null
+                                ? 0
+                                : getPythonWorkloads().stream()
+                                        .mapToLong(PackageWorkload::files)
+                                        .sum());
+        saveIndexSnapshot();
+        final BaselineIndex baselineIndex = getBaseline();
+        final List<CompactBom> javaBoms =
+                scheduler.run(
+                        workloads,
+                        workload -> scanJavaPackage(workload, javaIndexService, baselineIndex));
+        retainPackageBoms("java", workloads, javaBoms);
         return javaBoms;
 
         //     final JavaScannerService javaScannerService =
@@ -110,24 +207,62 @@ public class BomGenerator {
     }
 
     @Nonnull
-    public List<Bom> generatePythonBoms() {
-        final PythonIndexService pythonIndexService = new PythonIndexService(projectDirectory);
-        final List<ProjectModule> pythonProjectModules = pythonIndexService.index(null);
-        final List<Bom> pythonBoms = new ArrayList<>();
-        final PythonPackageFinderService packageFinder =
-                new PythonPackageFinderService(projectDirectory);
-        for (PackageMetadata pm : packageFinder.findPackages()) {
-            final List<ProjectModule> packageModules =
-                    getPackageModules(pythonProjectModules, pm.packageDir());
-            if (!packageModules.isEmpty()) {
-                LOG.info("Scanning python package {}", pm.packageDir());
-                final PythonScannerService pythonScannerService =
-                        new PythonScannerService(pm.packageDir());
-                final Bom pythonBom = pythonScannerService.scan(packageModules);
-                writeBom(pm, pythonBom);
-                pythonBoms.add(pythonBom);
-            }
+    private CompactBom scanJavaPackage(
+            @Nonnull PackageWorkload workload,
+            @Nonnull JavaIndexService javaIndexService,
+            @Nullable BaselineIndex baselineIndex) {
+        final PackageMetadata pm = workload.packageMetadata();
+        final List<ProjectModule> packageModules = workload.modules();
+        if (isAborted()) {
+            return skipPackage(workload);
+        }
+        // the classpath is part of the fingerprint
+        final String javaLibraries =
+                javaClasspathService.getLibraries(
+                        pm.packageDir(),
+                        javaIndexService.getMainBuildTypeFromModuleDirectory(pm.packageDir()),
+                        packageModules);
+        final String fingerprint = getFingerprint(workload, javaLibraries);
+        final CompactBom restoredBom = restore("java", workload, fingerprint, baselineIndex);
+        if (restoredBom != null) {
+            return restoredBom;
         }
+        LOG.info("Scanning java package {}", pm.packageDir());
+        progress.packageStarted(getPackageName(pm), workload.files());
+        final ScanEvents.PackageScan event = new ScanEvents.PackageScan();
+        event.begin();
+        final JavaScannerService javaScannerService =
+                new JavaScannerService(
+                        javaLibraries, pm.packageDir(), baselineIndex, quickScan);
+        final Bom javaBom = javaScannerService.scan(packageModules);
+        event.end();
+        if (event.shouldCommit()) {
+            event.language = "java";
+            event.path = getPackageName(pm);
+            event.files = workload.files();
+            event.bytes = workload.bytes();
+            event.findings = Optional.ofNullable(javaBom.getComponents()).map(List::size).orElse(0);
+            event.commit();
+        }
+        tagSubfolder(pm, javaBom);
+        collectScanResults(pm, javaScannerService);
+        writeBom(pm, javaBom);
+        checkpoint("java", workload, fingerprint, javaBom, javaScannerService);
+        final CompactBom compactBom = compact(javaBom);
+        progress.packageFinished(getPackageName(pm));
+        return compactBom;
+    }
+
+    @Nonnull
+    public List<CompactBom> generatePythonBoms() {
+        final List<PackageWorkload> workloads =
+                select(getPythonWorkloads(), pythonIndexService.getCryptoTokens(), 0);
+        // indexed again by a later call
+        pythonWorkloads = null;
+        final BaselineIndex baselineIndex = getBaseline();
+        final List<CompactBom> pythonBoms =
+                scheduler.run(workloads, workload -> scanPythonPackage(workload, baselineIndex));
+        retainPackageBoms("python", workloads, pythonBoms);
         return pythonBoms;
 
         // final PythonScannerService pythonScannerService =
@@ -135,6 +270,457 @@ public class BomGenerator {
         // return pythonScannerService.scan(pythonProjectModules);
     }
 
+    /**
+     * Python packages with their indexed modules, indexed once, before the java scan in a quick
+     * scan to split its file budget.
+     */
+    @Nonnull
+    private List<PackageWorkload> getPythonWorkloads() {
+        if (pythonWorkloads == null) {
+            pythonIndexService =
+                    new PythonIndexService(projectDirectory, indexSnapshot, getDirectoryWalker());
+            final List<ProjectModule> pythonProjectModules = pythonIndexService.index(null);
+            final PythonPackageFinderService packageFinder =
+                    new PythonPackageFinderService(
+                            projectDirectory, indexSnapshot, getDirectoryWalker());
+            pythonWorkloads = getWorkloads(packageFinder.findPackages(), pythonProjectModules);
+            saveIndexSnapshot();
+        }
+        return pythonWorkloads;
+    }
+
+    @Nonnull
+    private CompactBom scanPythonPackage(
+            @Nonnull PackageWorkload workload, @Nullable BaselineIndex baselineIndex) {
+        final PackageMetadata pm = workload.packageMetadata();
+        if (isAborted()) {
+            return skipPackage(workload);
+        }
+        final String fingerprint = getFingerprint(workload, null);
+        final CompactBom restoredBom = restore("python", workload, fingerprint, baselineIndex);
+        if (restoredBom != null) {
+            return restoredBom;
+        }
+        LOG.info("Scanning python package {}", pm.packageDir());
+        progress.packageStarted(getPackageName(pm), workload.files());
+        final ScanEvents.PackageScan event = new ScanEvents.PackageScan();
+        event.begin();
+        final PythonScannerService pythonScannerService =
+                new PythonScannerService(pm.packageDir(), baselineIndex, quickScan);
+        final Bom pythonBom = pythonScannerService.scan(workload.modules());
+        event.end();
+        if (event.shouldCommit()) {
+            event.language = "python";
+            event.path = getPackageName(pm);
+            event.files = workload.files();
+            event.bytes = workload.bytes();
+            event.findings =
+                    Optional.ofNullable(pythonBom.getComponents()).map(List::size).orElse(0);
+            event.commit();
+        }
+        tagSubfolder(pm, pythonBom);
+        collectScanResults(pm, pythonScannerService);
+        writeBom(pm, pythonBom);
+        checkpoint("python", workload, fingerprint, pythonBom, pythonScannerService);
+        final CompactBom compactBom = compact(pythonBom);
+        progress.packageFinished(getPackageName(pm));
+        return compactBom;
+    }
+
+    @Nullable
+    private String getFingerprint(
+            @Nonnull PackageWorkload workload, @Nullable String javaLibraries) {
+        if (checkpoint == null) {
+            return null;
+        }
+        try {
+            return checkpoint.fingerprint(workload, javaLibraries);
+        } catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Restores an unchanged package from the checkpoint, with the results of its scan: the
+     * abandoned files, the findings not in the baseline, the policy check and the findings stream.
+     */
+    @Nullable
+    private CompactBom restore(
+            @Nonnull String language,
+            @Nonnull PackageWorkload workload,
+            @Nullable String fingerprint,
+            @Nullable BaselineIndex baselineIndex) {
+        if (checkpoint == null || fingerprint == null) {
+            return null;
+        }
+        final Checkpoint.Restored restored =
+                checkpoint.restore(language, workload, fingerprint, baselineIndex != null);
+        if (restored == null) {
+            return null;
+        }
+        final PackageMetadata pm = workload.packageMetadata();
+        progress.addFilesTotal(-workload.files());
+        synchronized (this) {
+            abandonedFiles.addAll(restored.abandonedFiles());
+            if (baselineIndex != null && restored.copy() != null) {
+                deltaBoms.add(getNewFindings(restored.copy(), baselineIndex, pm));
+            }
+        }
+        final List<Component> components =
+                Optional.ofNullable(restored.bom().getComponents()).orElse(List.of());
+        FindingsStream.getInstance().write(pm.packageDir(), components);
+        if (policyGate.isEnabled()) {
+            for (Component component : components) {
+                for (Occurrence occurrence : getOccurrences(component)) {
+                    policyGate.check(
+                            pm.packageDir(),
+                            component.getName(),
+                            occurrence.getLocation(),
+                            Optional.ofNullable(occurrence.getLine()).orElse(-1));
+                }
+            }
+        }
+        return compact(restored.bom());
+    }
+
+    /**
+     * Restricts the restored findings of a package to the occurrences not in the baseline. Unlike
+     * the delta of a scanned package, components without occurrences are dropped.
+     */
+    @Nonnull
+    private static Bom getNewFindings(
+            @Nonnull Bom bom, @Nonnull BaselineIndex baselineIndex, @Nonnull PackageMetadata pm) {
+        final BaselineIndex.Matcher matcher = baselineIndex.matcher(pm.packageDir());
+        final List<Component> newComponents = new ArrayList<>();
+        for (Component component :
+                Optional.ofNullable(bom.getComponents()).orElse(List.of())) {
+            final List<Occurrence> newOccurrences = new ArrayList<>();
+            for (Occurrence occurrence : getOccurrences(component)) {
+                if (!matcher.contains(component, occurrence)) {
+                    newOccurrences.add(occurrence);
+                }
+            }
+            if (!newOccurrences.isEmpty()) {
+                component.getEvidence().setOccurrences(newOccurrences);
+                newComponents.add(component);
+            }
+        }
+        bom.setComponents(newComponents);
+        bom.setDependencies(new ArrayList<>());
+        return bom;
+    }
+
+    @Nonnull
+    private static List<Occurrence> getOccurrences(@Nonnull Component component) {
+        return component.getEvidence() == null || component.getEvidence().getOccurrences() == null
+                ? List.of()
+                : component.getEvidence().getOccurrences();
+    }
+
+    private void checkpoint(
+            @Nonnull String language,
+            @Nonnull PackageWorkload workload,
+            @Nullable String fingerprint,
+            @Nonnull Bom bom,
+            @Nonnull ScannerService scannerService) {
+        // files skipped by a quick scan or an aborted scan would be missing when a scan resumes
+        if (checkpoint == null
+                || fingerprint == null
+                || quickScan != null
+                || isAborted()) {
+            return;
+        }
+        final PackageMetadata pm = workload.packageMetadata();
+        checkpoint.completed(
+                language,
+                workload,
+                fingerprint,
+                bom,
+                "".equals(pm.name()) ? null : bomWriter.getFileName(pm.getCbomBaseName()),
+                scannerService.getAbandonedFiles());
+    }
+
+    private void saveIndexSnapshot() {
+        if (indexSnapshot != null) {
+            indexSnapshot.save();
+        }
+    }
+
+    /** Skips a package not yet started when a fail-fast policy aborted the scan. */
+    @Nonnull
+    private CompactBom skipPackage(@Nonnull PackageWorkload workload) {
+        final PackageMetadata pm = workload.packageMetadata();
+        LOG.info("Skipping package {}, the scan was aborted", pm.packageDir());
+        progress.addFilesTotal(-workload.files());
+        if (quickScan != null) {
+            quickScan.skipped(pm.packageDir(), workload.files());
+        }
+        final Bom bom = new Bom();
+        bom.setComponents(new ArrayList<>());
+        return compact(bom);
+    }
+
+    /**
+     * Keeps the findings of a written package cbom until consolidation, see {@link CompactBom} for
+     * what this does and does not save.
+     */
+    @Nonnull
+    private CompactBom compact(@Nonnull Bom bom) {
+        final CompactBom compactBom = CompactBom.of(bom, occurrenceStrings);
+        LOG.debug(
+                "Retaining {} occurrences, {} distinct strings",
+                compactBom.getOccurrenceCount(),
+                occurrenceStrings.size());
+        synchronized (retainedBoms) {
+            retainedBoms.add(compactBom);
+        }
+        return compactBom;
+    }
+
+    /** Flush hook of the memory governor: moves the retained package cboms to disk. */
+    private void spillRetainedBoms() {
+        final List<CompactBom> boms;
+        synchronized (retainedBoms) {
+            boms = List.copyOf(retainedBoms);
+            retainedBoms.clear();
+        }
+        if (boms.isEmpty()) {
+            return;
+        }
+        try {
+            synchronized (this) {
+                if (spillDir == null) {
+                    spillDir = Files.createTempDirectory("cbomkit-spill").toFile();
+                    spillDir.deleteOnExit();
+                }
+            }
+            for (CompactBom bom : boms) {
+                bom.spill(spillDir);
+            }
+            LOG.info("Spilled {} retained package cboms to {}", boms.size(), spillDir);
+        } catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stops spilling the package cboms of this generator, once they are consolidated, so that a
+     * batch scan does not keep them reachable through the shared memory governor.
+     */
+    void release() {
+        scheduler.getMemoryGovernor().removeFlushHook(spillHook);
+        synchronized (retainedBoms) {
+            retainedBoms.clear();
+        }
+    }
+
+    /** Keeps the CBOM of each package scanned from now on, so that it can be rescanned. */
+    void enableRescans() {
+        packageBoms = new LinkedHashMap<>();
+    }
+
+    private void retainPackageBoms(
+            @Nonnull String language,
+            @Nonnull List<PackageWorkload> workloads,
+            @Nonnull List<CompactBom> boms) {
+        if (packageBoms == null) {
+            return;
+        }
+        for (int i = 0; i < workloads.size(); i++) {
+            packageBoms.put(
+                    new ScannedPackage(language, workloads.get(i).packageMetadata()), boms.get(i));
+        }
+    }
+
+    /**
+     * Rescans the packages containing the changed paths, rewriting their CBOMs, and returns the
+     * latest CBOMs of all packages, or {@code null} if no scanned package is affected. A changed
+     * path belongs to the innermost package of each language containing it; Java and Python
+     * sources only affect packages of their own language. Requires {@link #enableRescans()}.
+     *
+     * @param changedPaths absolute paths of changed files and directories, or {@code null} to
+     *     rescan all packages
+     */
+    @Nullable
+    List<CompactBom> rescan(@Nullable Set<Path> changedPaths) {
+        if (packageBoms == null) {
+            throw new IllegalStateException("Rescans are not enabled");
+        }
+        final Set<ScannedPackage> affected = new LinkedHashSet<>();
+        if (changedPaths == null) {
+            affected.addAll(packageBoms.keySet());
+        } else {
+            for (Path changedPath : changedPaths) {
+                for (String language : List.of("java", "python")) {
+                    if (!isOtherLanguageSource(changedPath, language)) {
+                        getInnermostPackage(language, changedPath).ifPresent(affected::add);
+                    }
+                }
+            }
+        }
+        if (affected.isEmpty()) {
+            return null;
+        }
+        final BaselineIndex baselineIndex = getBaseline();
+        for (ScannedPackage scannedPackage : affected) {
+            packageBoms.put(scannedPackage, rescanPackage(scannedPackage, baselineIndex));
+        }
+        saveIndexSnapshot();
+        return List.copyOf(packageBoms.values());
+    }
+
+    private static boolean isOtherLanguageSource(@Nonnull Path path, @Nonnull String language) {
+        final String fileName = path.getFileName().toString();
+        return "java".equals(language) ? fileName.endsWith(".py") : fileName.endsWith(".java");
+    }
+
+    @Nonnull
+    private Optional<ScannedPackage> getInnermostPackage(
+            @Nonnull String language, @Nonnull Path path) {
+        return packageBoms.keySet().stream()
+                .filter(scannedPackage -> scannedPackage.language().equals(language))
+                .filter(scannedPackage -> path.startsWith(scannedPackage.packagePath()))
+                .max(
+                        Comparator.comparingInt(
+                                scannedPackage -> scannedPackage.packagePath().getNameCount()));
+    }
+
+    @Nonnull
+    private CompactBom rescanPackage(
+            @Nonnull ScannedPackage scannedPackage, @Nullable BaselineIndex baselineIndex) {
+        final PackageMetadata pm = scannedPackage.packageMetadata();
+        if (quickScan != null) {
+            LOG.info("Rescanning all files of changed packages, the quick scan budget is not used");
+            quickScan = null;
+        }
+        // listings of the initial walk may be stale, the snapshot relists changed directories
+        if ("java".equals(scannedPackage.language())) {
+            final JavaIndexService javaIndexService =
+                    new JavaIndexService(projectDirectory, indexSnapshot);
+            final PackageWorkload workload =
+                    PackageWorkload.of(pm, javaIndexService.indexModule(pm.packageDir()));
+            progress.addFilesTotal(workload.files());
+            return scanJavaPackage(workload, javaIndexService, baselineIndex);
+        }
+        final PythonIndexService pythonIndexService =
+                new PythonIndexService(projectDirectory, indexSnapshot);
+        final PackageWorkload workload =
+                PackageWorkload.of(pm, pythonIndexService.indexModule(pm.packageDir()));
+        progress.addFilesTotal(workload.files());
+        return scanPythonPackage(workload, baselineIndex);
+    }
+
+    /** Walks the workspace on first use, see {@link DirectoryWalker}. */
+    @Nullable
+    private DirectoryWalker getDirectoryWalker() {
+        if (!directoryWalked) {
+            // one walk of the workspace serves the indexers and package finders of all languages
+            directoryWalked = true;
+            directoryWalker = DirectoryWalker.walkFromEnvironment(projectDirectory, indexSnapshot);
+        }
+        return directoryWalker;
+    }
+
+    /** Loads the baseline CBOM given by {@code CBOMKIT_BASELINE_CBOM} on first use. */
+    @Nullable
+    private BaselineIndex getBaseline() {
+        if (!baselineLoaded) {
+            baselineLoaded = true;
+            try {
+                baseline = BaselineIndex.fromEnvironment(projectDirectory).orElse(null);
+            } catch (IOException e) {
+                LOG.error(e.getMessage(), e);
+            }
+        }
+        return baseline;
+    }
+
+    /**
+     * Records the package of each component, since occurrence locations are relative to it, see
+     * {@link BaselineIndex#SUBFOLDER_PROPERTY}.
+     */
+    private void tagSubfolder(@Nonnull PackageMetadata pm, @Nonnull Bom bom) {
+        final String subfolder = BaselineIndex.getSubfolder(projectDirectory, pm.packageDir());
+        if (subfolder == null || bom.getComponents() == null) {
+            return;
+        }
+        for (Component component : bom.getComponents()) {
+            final Property subfolderProperty = new Property();
+            subfolderProperty.setName(BaselineIndex.SUBFOLDER_PROPERTY);
+            subfolderProperty.setValue(subfolder);
+            final List<Property> properties =
+                    new ArrayList<>(
+                            Optional.ofNullable(component.getProperties()).orElse(List.of()));
+            properties.add(subfolderProperty);
+            component.setProperties(properties);
+        }
+    }
+
+    private synchronized void collectScanResults(
+            @Nonnull PackageMetadata pm, @Nonnull ScannerService scannerService) {
+        abandonedFiles.addAll(scannerService.getAbandonedFiles());
+        final Bom deltaBom = scannerService.getDeltaBOM();
+        if (deltaBom != null) {
+            tagSubfolder(pm, deltaBom);
+            deltaBoms.add(deltaBom);
+        }
+    }
+
+    /** Packages with indexed modules, restricted to the slice of this shard (if any). */
+    @Nonnull
+    private List<PackageWorkload> getWorkloads(
+            @Nonnull List<PackageMetadata> packages, @Nonnull List<ProjectModule> allModules) {
+        final List<PackageWorkload> workloads =
+                packages.stream()
+                        .map(
+                                pm ->
+                                        PackageWorkload.of(
+                                                pm,
+                                                getPackageModules(allModules, pm.packageDir())))
+                        .filter(workload -> !workload.modules().isEmpty())
+                        .toList();
+        final List<PackageWorkload> selected =
+                shard == null ? workloads : shard.select(workloads);
+        if (shard != null) {
+            LOG.info(
+                    "Shard {}/{} scans {} of {} packages",
+                    shard.index(),
+                    shard.count(),
+                    selected.size(),
+                    workloads.size());
+        }
+        return selected;
+    }
+
+    /**
+     * Restricts the workloads to the files selected by the quick scan (if any) and adds them to the
+     * progress total.
+     *
+     * @param laterFiles files of the languages scanned after this one, see {@link QuickScan}
+     */
+    @Nonnull
+    private List<PackageWorkload> select(
+            @Nonnull List<PackageWorkload> workloads,
+            @Nonnull List<String> cryptoTokens,
+            long laterFiles) {
+        final List<PackageWorkload> selected =
+                quickScan == null
+                        ? workloads
+                        : quickScan.select(workloads, cryptoTokens, laterFiles);
+        progress.addFilesTotal(selected.stream().mapToLong(PackageWorkload::files).sum());
+        return selected;
+    }
+
+    /** Package directory relative to the workspace, as reported in progress events. */
+    @Nonnull
+    private String getPackageName(@Nonnull PackageMetadata packageMetadata) {
+        return projectDirectory
+                .toPath()
+                .relativize(packageMetadata.packageDir().toPath())
+                .toString();
+    }
+
     private List<ProjectModule> getPackageModules(List<ProjectModule> allModules, File packageDir) {
         return allModules.stream()
                 .filter(
@@ -150,45 +736,118 @@ public class BomGenerator {
         writeBom(new PackageMetadata(projectDirectory, null), bom);
     }
 
+    /**
+     * Writes the consolidated cbom of the given package cboms, streamed from their compact stores
+     * one package at a time, see {@link BomWriter#write(Bom, List, File, String)}.
+     */
+    public void writeBom(@Nonnull List<CompactBom> packageBoms) {
+        if (FindingsStream.getInstance().isStreamOnly()) {
+            // findings were only streamed, see FindingsStream
+            return;
+        }
+        final PackageMetadata packageMetadata = new PackageMetadata(projectDirectory, null);
+        // a shard only writes its partial consolidated cbom, see Main#merge
+        final String baseName =
+                shard != null ? shard.getCbomBaseName("cbom") : packageMetadata.getCbomBaseName();
+        final Bom header = Main.createCombinedBom(List.of());
+        header.setMetadata(generateMetadata(packageMetadata));
+        LOG.info(
+                "Writing cbom {} with {} findings",
+                baseName,
+                packageBoms.stream().mapToInt(CompactBom::getOccurrenceCount).sum());
+        try {
+            bomWriter.write(header, packageBoms, this.outputDir, baseName);
+        } catch (IOException | GeneratorException e) {
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
     private void writeBom(PackageMetadata packageMetadata, Bom bom) {
-        bom.setMetadata(generateMetadata(packageMetadata));
+        if (FindingsStream.getInstance().isStreamOnly()) {
+            // findings were only streamed, see FindingsStream
+            return;
+        }
+        if ("".equals(packageMetadata.name())) {
+            LOG.info(
+                    "Writing {} top-level findings into consolidated {}/cbom.json",
+                    countFindings(bom),
+                    this.outputDir);
+            return;
+        }
 
-        final BomJsonGenerator bomGenerator =
-                BomGeneratorFactory.createJson(Version.VERSION_16, bom);
+        // a shard only writes its partial consolidated cbom, see Main#merge
+        final String baseName =
+                packageMetadata.name() == null && shard != null
+                        ? shard.getCbomBaseName("cbom")
+                        : packageMetadata.getCbomBaseName();
+        writeBomFile(packageMetadata, bom, baseName);
+    }
 
-        try {
-            String bomString = bomGenerator.toJsonString();
-            if (bomString == null) {
-                LOG.error("Empty CBOM");
-            } else {
-                int numFindings = 0;
-                if (bom.getComponents() != null) {
-                    for (Component c : bom.getComponents()) {
-                        numFindings += c.getEvidence().getOccurrences().size();
-                    }
-                }
+    @Nonnull
+    public BomWriter getBomWriter() {
+        return bomWriter;
+    }
 
-                if ("".equals(packageMetadata.name())) {
-                    LOG.info(
-                            "Writing {} top-level findings into consolidated {}/cbom.json",
-                            numFindings,
-                            this.outputDir);
-                    return;
-                }
+    /**
+     * Writes the findings that are not in the baseline CBOM to {@code cbom-delta.json}, if
+     * scanning with a baseline.
+     */
+    public void writeDeltaBom() {
+        if (getBaseline() != null) {
+            writeDeltaBom(Main.createCombinedBom(deltaBoms));
+        }
+    }
 
-                final String fileName = packageMetadata.getCbomFileName();
-                final File cbomFile = new File(this.outputDir, fileName);
-                LOG.info("Writing cbom {} with {} findings", cbomFile, numFindings);
+    public void writeDeltaBom(Bom deltaBom) {
+        final String baseName = shard != null ? shard.getCbomBaseName("cbom-delta") : "cbom-delta";
+        writeBomFile(new PackageMetadata(projectDirectory, null), deltaBom, baseName);
+    }
 
-                try (FileWriter writer = new FileWriter(cbomFile)) {
-                    writer.write(bomString);
-                }
-            }
+    private void writeBomFile(PackageMetadata packageMetadata, Bom bom, String baseName) {
+        bom.setMetadata(generateMetadata(packageMetadata));
+        LOG.info("Writing cbom {} with {} findings", baseName, countFindings(bom));
+        try {
+            bomWriter.write(bom, this.outputDir, baseName);
         } catch (IOException | GeneratorException e) {
             LOG.error(e.getMessage(), e);
         }
     }
 
+    private static int countFindings(Bom bom) {
+        int numFindings = 0;
+        if (bom.getComponents() != null) {
+            for (Component c : bom.getComponents()) {
+                numFindings += c.getEvidence().getOccurrences().size();
+            }
+        }
+        return numFindings;
+    }
+
+    /**
+     * Writes the files abandoned by the scan watchdog (timeout or stack overflow) to {@code
+     * abandoned-files.txt}, one tab separated line per file: reason, elapsed millis, path.
+     */
+    public void writeAbandonedFiles() {
+        if (abandonedFiles.isEmpty()) {
+            return;
+        }
+        final File abandonedFilesFile = new File(this.outputDir, "abandoned-files.txt");
+        LOG.warn("Writing {} abandoned files to {}", abandonedFiles.size(), abandonedFilesFile);
+        try (FileWriter writer = new FileWriter(abandonedFilesFile)) {
+            for (ScanWatchdog.AbandonedFile abandonedFile : abandonedFiles) {
+                writer.write(
+                        abandonedFile.reason()
+                                + "\t"
+                                + abandonedFile.elapsedMillis()
+                                + "\t"
+                                + projectDirectory.toPath().relativize(abandonedFile.file())
+                                + "\n");
+            }
+        } catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
     private Metadata generateMetadata(PackageMetadata packageMetadata) {
         final Metadata metadata = new Metadata();
         metadata.setTimestamp(new Date());
@@ -203,6 +862,13 @@ public class BomGenerator {
         scannerInfo.setServices(List.of(scannerService));
         metadata.setToolChoice(scannerInfo);
 
+        if (repositoryName != null) {
+            addSubfolderProperty(metadata, packageMetadata);
+            addCoverageProperties(metadata, packageMetadata);
+            addAbortedProperty(metadata);
+            return metadata;
+        }
+
         final String gitServer = System.getenv("GITHUB_SERVER_URL");
         final String gitUrl = System.getenv("GITHUB_REPOSITORY");
         if (gitServer != null && gitUrl != null) {
@@ -228,6 +894,14 @@ public class BomGenerator {
             metadata.addProperty(commitProperty);
         }
 
+        addSubfolderProperty(metadata, packageMetadata);
+        addCoverageProperties(metadata, packageMetadata);
+        addAbortedProperty(metadata);
+        return metadata;
+    }
+
+    private void addSubfolderProperty(
+            @Nonnull Metadata metadata, @Nonnull PackageMetadata packageMetadata) {
         if (!packageMetadata.packageDir().equals(projectDirectory)) {
             final Path relPackageDir =
                     projectDirectory.toPath().relativize(packageMetadata.packageDir().toPath());
@@ -236,7 +910,59 @@ public class BomGenerator {
             subFolderProperty.setValue(relPackageDir.toString());
             metadata.addProperty(subFolderProperty);
         }
+    }
 
-        return metadata;
+    /** Marks the CBOM of a quick scan with the files scanned and skipped within the budget. */
+    private void addCoverageProperties(
+            @Nonnull Metadata metadata, @Nonnull PackageMetadata packageMetadata) {
+        if (quickScan == null) {
+            return;
+        }
+        // only the consolidated CBOMs are written for the workspace directory
+        final QuickScan.Coverage coverage =
+                packageMetadata.packageDir().equals(projectDirectory)
+                        ? quickScan.getCoverage()
+                        : quickScan.getCoverage(packageMetadata.packageDir());
+        if (coverage == null) {
+            return;
+        }
+        final Property scanModeProperty = new Property();
+        scanModeProperty.setName("scanMode");
+        scanModeProperty.setValue("quick");
+        metadata.addProperty(scanModeProperty);
+
+        final Property scannedProperty = new Property();
+        scannedProperty.setName("filesScanned");
+        scannedProperty.setValue(String.valueOf(coverage.scanned()));
+        metadata.addProperty(scannedProperty);
+
+        final Property skippedProperty = new Property();
+        skippedProperty.setName("filesSkipped");
+        skippedProperty.setValue(String.valueOf(coverage.skipped()));
+        metadata.addProperty(skippedProperty);
+    }
+
+    /**
+     * Marks the CBOM as partial when a fail-fast policy or too many abandoned scan threads aborted
+     * the scan.
+     */
+    private void addAbortedProperty(@Nonnull Metadata metadata) {
+        final String reason =
+                policyGate.isAborted()
+                        ? "policy violation"
+                        : ScanWatchdog.hasTooManyAbandonedThreads()
+                                ? "too many abandoned scan threads"
+                                : null;
+        if (reason != null) {
+            final Property abortedProperty = new Property();
+            abortedProperty.setName("scanAborted");
+            abortedProperty.setValue(reason);
+            metadata.addProperty(abortedProperty);
+        }
+    }
+
+    /** Whether no further package is scanned, see {@link #addAbortedProperty}. */
+    private boolean isAborted() {
+        return policyGate.isAborted() || ScanWatchdog.hasTooManyAbandonedThreads();
     }
 }
@@ -20,17 +20,37 @@
 package org.pqca;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import org.cyclonedx.exception.ParseException;
 import org.cyclonedx.model.Bom;
 import org.cyclonedx.model.Component;
 import org.cyclonedx.model.Dependency;
+import org.cyclonedx.parsers.JsonParser;
 import org.pqca.errors.CouldNotLoadJavaJars;
+import org.pqca.metrics.FlightRecording;
+import org.pqca.metrics.ProgressReporter;
+import org.pqca.metrics.RuleProfiler;
+import org.pqca.metrics.StartupMetrics;
+import org.pqca.output.BomWriter;
+import org.pqca.output.CompactBom;
+import org.pqca.output.Compression;
+import org.pqca.output.FindingsStream;
+import org.pqca.scanning.FindingCache;
+import org.pqca.scanning.PolicyGate;
+import org.pqca.scanning.ScanWatchdog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,8 +59,11 @@ public class Main {
     private static final Logger LOG = LoggerFactory.getLogger(Main.class);
 
     public static void main(@Nonnull String[] args) {
-        final String workspace = System.getenv("GITHUB_WORKSPACE");
-        final File projectDirectory = new File(workspace);
+        StartupMetrics.logStartup();
+        if (PolicyGate.getInstance().hasLoadFailed()) {
+            // findings cannot be checked, the gate fails closed
+            System.exit(1);
+        }
 
         // Create output dir
         final File outputDir =
@@ -54,39 +77,209 @@ public class Main {
             LOG.error("Failed to created cbom output dir '{}'", outputDir);
         }
 
+        final FlightRecording flightRecording = FlightRecording.startFromEnvironment(outputDir);
+
+        final String batchManifest =
+                args.length > 1 && "batch".equals(args[0])
+                        ? args[1]
+                        : System.getenv("CBOMKIT_BATCH_MANIFEST");
+        if (batchManifest != null) {
+            final boolean batchStarted = new BatchScanner(new File(batchManifest), outputDir).run();
+            reportScan(outputDir);
+            FindingsStream.getInstance().close();
+            // the CBOMs of each repository are in its subdirectory
+            writeOutputPattern(outputDir, "*/" + BomWriter.fromEnvironment().getFilePattern());
+            stopFlightRecording(flightRecording);
+            if (!batchStarted) {
+                System.exit(1);
+            }
+            exitOnAbandonedThreads();
+            exitOnPolicyViolations(outputDir);
+            return;
+        }
+
+        final String workspace = System.getenv("GITHUB_WORKSPACE");
+        final File projectDirectory = new File(workspace);
         final BomGenerator bomGenerator = new BomGenerator(projectDirectory, outputDir);
+        final boolean watch =
+                (args.length > 0 && "watch".equals(args[0]))
+                        || Boolean.parseBoolean(System.getenv("CBOMKIT_WATCH"));
+        if (watch) {
+            bomGenerator.enableRescans();
+        }
 
-        try {
-            List<Bom> boms = new ArrayList<>();
-            boms.addAll(bomGenerator.generateJavaBoms());
-            boms.addAll(bomGenerator.generatePythonBoms());
+        if ((args.length > 0 && "merge".equals(args[0]))
+                || Boolean.parseBoolean(System.getenv("CBOMKIT_MERGE"))) {
+            merge(bomGenerator, outputDir);
+            writeOutputPattern(outputDir, bomGenerator.getBomWriter().getFilePattern());
+            stopFlightRecording(flightRecording);
+            return;
+        }
 
-            Bom consolidatedBom = createCombinedBom(boms);
-            bomGenerator.writeBom(consolidatedBom);
+        try {
+            scan(bomGenerator);
+            reportScan(outputDir);
+            if (watch
+                    && !PolicyGate.getInstance().isAborted()
+                    && !ScanWatchdog.hasTooManyAbandonedThreads()) {
+                // rescans keep streaming findings
+                new Watcher(projectDirectory, outputDir, bomGenerator).run();
+            }
+            FindingsStream.getInstance().close();
         } catch (CouldNotLoadJavaJars e) {
             LOG.error(e.getMessage(), e);
         }
 
+        writeOutputPattern(outputDir, bomGenerator.getBomWriter().getFilePattern());
+        stopFlightRecording(flightRecording);
+        exitOnAbandonedThreads();
+        exitOnPolicyViolations(outputDir);
+    }
+
+    /**
+     * Writes the reports of the rule profiler, the finding cache, the scan watchdog and the
+     * progress.
+     */
+    private static void reportScan(@Nonnull File outputDir) {
+        RuleProfiler.getInstance().writeReport(outputDir);
+        FindingCache.getInstance().logStatistics();
+        ScanWatchdog.logStatistics();
+        ProgressReporter.getInstance().scanFinished();
+    }
+
+    /** Fails the step if too many abandoned scan threads stopped the scan, see ScanWatchdog. */
+    private static void exitOnAbandonedThreads() {
+        if (ScanWatchdog.hasTooManyAbandonedThreads()) {
+            LOG.error("Too many abandoned scan threads, the scan is incomplete");
+            System.exit(1);
+        }
+    }
+
+    /** Writes the policy report and fails the step if any finding violated the policy. */
+    private static void exitOnPolicyViolations(@Nonnull File outputDir) {
+        final PolicyGate policyGate = PolicyGate.getInstance();
+        policyGate.writeReport(outputDir);
+        if (policyGate.hasViolations()) {
+            LOG.error("Findings violate the policy, see {}", outputDir);
+            System.exit(1);
+        }
+    }
+
+    private static void stopFlightRecording(@Nullable FlightRecording flightRecording) {
+        if (flightRecording != null) {
+            flightRecording.close();
+        }
+    }
+
+    /** Scans the workspace of the generator and writes its CBOMs and reports. */
+    static void scan(@Nonnull BomGenerator bomGenerator) throws CouldNotLoadJavaJars {
+        List<CompactBom> boms = new ArrayList<>();
+        boms.addAll(bomGenerator.generateJavaBoms());
+        boms.addAll(bomGenerator.generatePythonBoms());
+
+        bomGenerator.writeBom(boms);
+        bomGenerator.writeDeltaBom();
+        bomGenerator.writeAbandonedFiles();
+    }
+
+    private static void writeOutputPattern(@Nonnull File outputDir, @Nonnull String filePattern) {
         // set output var
         final String githubOutput = System.getenv("GITHUB_OUTPUT");
         try (final FileWriter outPutVarFileWriter = new FileWriter(githubOutput, true)) {
-            outPutVarFileWriter.write("pattern=" + outputDir + "/cbom*.json\n");
-            LOG.info("pattern=" + outputDir + "/cbom*.json > " + githubOutput);
+            outPutVarFileWriter.write("pattern=" + outputDir + "/" + filePattern + "\n");
+            LOG.info("pattern=" + outputDir + "/" + filePattern + " > " + githubOutput);
         } catch (IOException e) {
             LOG.error(e.getMessage(), e);
         }
     }
 
+    /**
+     * Combines the partial CBOMs written by the shards of a sharded scan ({@code
+     * cbom.shard-<i>-of-<N>.json} in the output dir) into the consolidated {@code cbom.json}, and
+     * likewise the partial delta CBOMs into {@code cbom-delta.json}. The merged partial files are
+     * moved to the {@code shards} subdirectory, so that the {@code pattern} output only matches
+     * the merged CBOMs.
+     */
+    private static void merge(@Nonnull BomGenerator bomGenerator, @Nonnull File outputDir) {
+        final File[] partialBomFiles = listPartialBoms(outputDir, "cbom.shard-");
+        if (partialBomFiles.length == 0) {
+            LOG.error("No partial cbom files to merge in '{}'", outputDir);
+            return;
+        }
+        bomGenerator.writeBom(createCombinedBom(readPartialBoms(partialBomFiles)));
+
+        final File[] partialDeltaBomFiles = listPartialBoms(outputDir, "cbom-delta.shard-");
+        if (partialDeltaBomFiles.length > 0) {
+            bomGenerator.writeDeltaBom(createCombinedBom(readPartialBoms(partialDeltaBomFiles)));
+        }
+        moveToShardsDir(outputDir, partialBomFiles);
+        moveToShardsDir(outputDir, partialDeltaBomFiles);
+    }
+
+    @Nonnull
+    private static File[] listPartialBoms(@Nonnull File outputDir, @Nonnull String prefix) {
+        final File[] partialBomFiles =
+                outputDir.listFiles(
+                        (dir, name) ->
+                                name.startsWith(prefix)
+                                        && name.endsWith(
+                                                ".json"
+                                                        + Compression.fromFileName(name)
+                                                                .getExtension()));
+        if (partialBomFiles == null) {
+            return new File[0];
+        }
+        Arrays.sort(partialBomFiles);
+        return partialBomFiles;
+    }
+
+    @Nonnull
+    private static List<Bom> readPartialBoms(@Nonnull File[] partialBomFiles) {
+        final JsonParser parser = new JsonParser();
+        final List<Bom> partialBoms = new ArrayList<>();
+        for (File partialBomFile : partialBomFiles) {
+            final Compression compression = Compression.fromFileName(partialBomFile.getName());
+            try (InputStream in =
+                    compression.decompress(
+                            new BufferedInputStream(new FileInputStream(partialBomFile)))) {
+                partialBoms.add(parser.parse(in));
+                LOG.info("Merging partial cbom {}", partialBomFile);
+            } catch (IOException | ParseException e) {
+                LOG.error(e.getMessage(), e);
+            }
+        }
+        return partialBoms;
+    }
+
+    private static void moveToShardsDir(@Nonnull File outputDir, @Nonnull File[] files) {
+        final File shardsDir = new File(outputDir, "shards");
+        for (File file : files) {
+            try {
+                Files.createDirectories(shardsDir.toPath());
+                Files.move(
+                        file.toPath(),
+                        shardsDir.toPath().resolve(file.getName()),
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                LOG.error(e.getMessage(), e);
+            }
+        }
+    }
+
     @Nonnull
-    private static Bom createCombinedBom(@Nonnull List<Bom> sourceBoms) {
+    static Bom createCombinedBom(@Nonnull List<Bom> sourceBoms) {
         final Bom bom = new Bom();
         bom.setSerialNumber("urn:uuid:" + UUID.randomUUID());
 
         final List<Component> components = new ArrayList<>();
         final List<Dependency> dependencies = new ArrayList<>();
         for (final Bom sourceBom : sourceBoms) {
-            components.addAll(sourceBom.getComponents());
-            dependencies.addAll(sourceBom.getDependencies());
+            if (sourceBom.getComponents() != null) {
+                components.addAll(sourceBom.getComponents());
+            }
+            if (sourceBom.getDependencies() != null) {
+                dependencies.addAll(sourceBom.getDependencies());
+            }
         }
         bom.setComponents(components);
         bom.setDependencies(dependencies);
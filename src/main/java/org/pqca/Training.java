@@ -0,0 +1,61 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca;
+
+import jakarta.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.pqca.errors.CouldNotLoadJavaJars;
+import org.pqca.metrics.StartupMetrics;
+import org.pqca.output.CompactBom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scans the bundled mini corpus once. The image build runs this entrypoint with {@code
+ * -XX:ArchiveClassesAtExit} to record the class data sharing archive used at runtime.
+ */
+public class Training {
+    private static final Logger LOG = LoggerFactory.getLogger(Training.class);
+    private static final String DEFAULT_CORPUS_DIR = "/cbomkit-action/training";
+
+    public static void main(@Nonnull String[] args) throws IOException {
+        StartupMetrics.logStartup();
+
+        final File corpusDirectory = new File(args.length > 0 ? args[0] : DEFAULT_CORPUS_DIR);
+        final File outputDir = Files.createTempDirectory("cbomkit-training").toFile();
+        LOG.info("Training scan of '{}' into '{}'", corpusDirectory, outputDir);
+
+        final long start = System.currentTimeMillis();
+        final BomGenerator bomGenerator = new BomGenerator(corpusDirectory, outputDir);
+        try {
+            final List<CompactBom> boms = new ArrayList<>();
+            boms.addAll(bomGenerator.generateJavaBoms());
+            boms.addAll(bomGenerator.generatePythonBoms());
+            bomGenerator.writeBom(boms);
+        } catch (CouldNotLoadJavaJars e) {
+            LOG.error(e.getMessage(), e);
+        }
+        LOG.info("Training scan took {} ms", System.currentTimeMillis() - start);
+    }
+}
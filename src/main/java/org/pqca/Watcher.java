@@ -0,0 +1,202 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.pqca.output.CompactBom;
+import org.pqca.scanning.PolicyGate;
+import org.pqca.scanning.ScanWatchdog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watch mode for local use: after the initial scan, the workspace is watched for changes and the
+ * packages containing changed sources or build files are rescanned, rewriting their {@code
+ * cbom_<package>} files and the consolidated CBOM. The JVM, the jar index and the index snapshot
+ * stay warm between rescans. Bursts of events are coalesced until no event has arrived for {@code
+ * CBOMKIT_WATCH_DEBOUNCE_MS} (default {@code 300}). Watching stops when a fail-fast policy
+ * aborts a rescan, whose CBOMs then stay partial.
+ */
+final class Watcher {
+    private static final Logger LOG = LoggerFactory.getLogger(Watcher.class);
+    private static final List<String> BUILD_FILE_NAMES =
+            List.of(
+                    "pom.xml",
+                    "build.gradle",
+                    "build.gradle.kts",
+                    "pyproject.toml",
+                    "setup.cfg",
+                    "setup.py");
+
+    @Nonnull private final Path workspace;
+    @Nonnull private final Path outputDir;
+    @Nonnull private final BomGenerator bomGenerator;
+    @Nonnull private final PolicyGate policyGate = PolicyGate.getInstance();
+    private final long debounceMillis;
+    @Nonnull private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+
+    Watcher(@Nonnull File workspace, @Nonnull File outputDir, @Nonnull BomGenerator bomGenerator) {
+        this.workspace = workspace.toPath().toAbsolutePath();
+        this.outputDir = outputDir.toPath().toAbsolutePath();
+        this.bomGenerator = bomGenerator;
+        this.debounceMillis =
+                Optional.ofNullable(System.getenv("CBOMKIT_WATCH_DEBOUNCE_MS"))
+                        .map(Long::parseLong)
+                        .orElse(300L);
+    }
+
+    /** Watches until the thread is interrupted or a fail-fast policy aborts a rescan. */
+    void run() {
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            register(watchService, workspace);
+            LOG.info(
+                    "Watching {} directories of {} for changes",
+                    watchedDirectories.size(),
+                    workspace);
+            while (!Thread.currentThread().isInterrupted()
+                    && !policyGate.isAborted()
+                    && !ScanWatchdog.hasTooManyAbandonedThreads()) {
+                WatchKey key = watchService.take();
+                final Set<Path> changedPaths = new LinkedHashSet<>();
+                boolean overflow = false;
+                do {
+                    overflow |= collect(watchService, key, changedPaths);
+                    key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                } while (key != null);
+                if (overflow || !changedPaths.isEmpty()) {
+                    rescan(overflow ? null : changedPaths);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
+    /** Collects the relevant changed paths of the key, returns whether events were lost. */
+    private boolean collect(
+            @Nonnull WatchService watchService,
+            @Nonnull WatchKey key,
+            @Nonnull Set<Path> changedPaths)
+            throws IOException {
+        final Path directory = watchedDirectories.get(key);
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || directory == null) {
+                overflow = true;
+                continue;
+            }
+            final Path path = directory.resolve((Path) event.context());
+            if (isIgnored(path)) {
+                continue;
+            }
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                register(watchService, path);
+                changedPaths.add(path);
+            } else if (isSourceOrBuildFile(path)
+                    || (event.kind() == ENTRY_DELETE && watchedDirectories.containsValue(path))) {
+                // other files, e.g. temporary files of atomic writes, do not trigger a rescan
+                changedPaths.add(path);
+            }
+        }
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+        return overflow;
+    }
+
+    private void rescan(@Nullable Set<Path> changedPaths) {
+        final long start = System.currentTimeMillis();
+        if (changedPaths == null) {
+            LOG.warn("File system events were lost, rescanning all packages");
+        } else {
+            LOG.info("Detected {} changed paths", changedPaths.size());
+        }
+        final List<CompactBom> boms = bomGenerator.rescan(changedPaths);
+        if (boms == null) {
+            LOG.info("No scanned package is affected by the changes");
+            return;
+        }
+        bomGenerator.writeBom(boms);
+        LOG.info("Rescan finished in {} ms", System.currentTimeMillis() - start);
+        if (policyGate.isAborted()) {
+            LOG.error("A policy violation aborted the rescan, stopping to watch");
+        }
+    }
+
+    private void register(@Nonnull WatchService watchService, @Nonnull Path root)
+            throws IOException {
+        Files.walkFileTree(
+                root,
+                new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(
+                            @Nonnull Path dir, @Nonnull BasicFileAttributes attrs)
+                            throws IOException {
+                        if (isIgnored(dir)) {
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                        watchedDirectories.put(
+                                dir.register(
+                                        watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY),
+                                dir);
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+    }
+
+    /** Whether the path is in the output dir, which is rewritten by rescans, or in {@code .git}. */
+    private boolean isIgnored(@Nonnull Path path) {
+        return path.startsWith(outputDir)
+                || (path.getFileName() != null && path.getFileName().toString().equals(".git"));
+    }
+
+    private static boolean isSourceOrBuildFile(@Nonnull Path path) {
+        final String fileName = path.getFileName().toString();
+        return fileName.endsWith(".java")
+                || fileName.endsWith(".py")
+                || BUILD_FILE_NAMES.contains(fileName);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.classpath;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.pqca.indexing.IBuildType;
+import org.pqca.indexing.JavaBuildType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/** Reads the artifact ids of the dependencies declared in a maven or gradle build file. */
+public final class DeclaredDependencies {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeclaredDependencies.class);
+
+    // 'group:artifact:version' and "group:artifact" dependency notations
+    private static final Pattern GRADLE_COORDINATES =
+            Pattern.compile("[\"']([\\w.\\-]+):([\\w.\\-]+)(?::[^\"']*)?[\"']");
+    // group: 'group', name: 'artifact' map notation
+    private static final Pattern GRADLE_NAME =
+            Pattern.compile("\\bname\\s*:\\s*[\"']([\\w.\\-]+)[\"']");
+
+    private DeclaredDependencies() {}
+
+    @Nonnull
+    public static Set<String> getArtifactIds(
+            @Nonnull File packageDir, @Nullable IBuildType buildType) {
+        if (buildType == JavaBuildType.MAVEN) {
+            return getMavenArtifactIds(new File(packageDir, "pom.xml"));
+        }
+        if (buildType == JavaBuildType.GRADLE) {
+            final Set<String> artifactIds = new LinkedHashSet<>();
+            for (String gradleFileName : List.of("build.gradle", "build.gradle.kts")) {
+                final File gradleFile = new File(packageDir, gradleFileName);
+                if (gradleFile.isFile()) {
+                    artifactIds.addAll(getGradleArtifactIds(gradleFile));
+                }
+            }
+            return artifactIds;
+        }
+        return Collections.emptySet();
+    }
+
+    @Nonnull
+    private static Set<String> getMavenArtifactIds(@Nonnull File pomFile) {
+        final Set<String> artifactIds = new LinkedHashSet<>();
+        try {
+            final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            final Document pom = factory.newDocumentBuilder().parse(pomFile);
+            final NodeList dependencies = pom.getElementsByTagName("dependency");
+            for (int i = 0; i < dependencies.getLength(); i++) {
+                final NodeList artifactId =
+                        ((Element) dependencies.item(i)).getElementsByTagName("artifactId");
+                if (artifactId.getLength() > 0) {
+                    artifactIds.add(artifactId.item(0).getTextContent().trim());
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.error("Failed to read dependencies of {}: {}", pomFile, e.getMessage());
+        }
+        return artifactIds;
+    }
+
+    @Nonnull
+    private static Set<String> getGradleArtifactIds(@Nonnull File gradleFile) {
+        final Set<String> artifactIds = new LinkedHashSet<>();
+        try {
+            final String content = Files.readString(gradleFile.toPath());
+            final Matcher coordinates = GRADLE_COORDINATES.matcher(content);
+            while (coordinates.find()) {
+                artifactIds.add(coordinates.group(2));
+            }
+            final Matcher name = GRADLE_NAME.matcher(content);
+            while (name.find()) {
+                artifactIds.add(name.group(1));
+            }
+        } catch (Exception e) {
+            LOGGER.error("Failed to read dependencies of {}: {}", gradleFile, e.getMessage());
+        }
+        return artifactIds;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.classpath;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import jakarta.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Read-only, memory-mapped index from Java package name to the jars of the dependency jar
+ * directory that contain classes of that package. The index is written by {@link
+ * JarIndexBuilder} at image build time.
+ *
+ * <p>Layout (big endian): magic, version, jar count, package count, the jar file names, a table
+ * of entry offsets, and one entry per package sorted by name. Strings are stored as unsigned
+ * short length followed by UTF-8 bytes, an entry is its package name followed by an unsigned
+ * short count of jar ids.
+ */
+public final class JarIndex {
+    static final int MAGIC = 0x43424a49; // CBJI
+    static final int VERSION = 1;
+    public static final String DEFAULT_FILE_NAME = "jar-index.bin";
+
+    @Nonnull private final File jarDir;
+    @Nonnull private final ByteBuffer buffer;
+    @Nonnull private final String[] jarNames;
+    private final int packageCount;
+    private final int offsetTable;
+
+    private JarIndex(@Nonnull File jarDir, @Nonnull ByteBuffer buffer) throws IOException {
+        this.jarDir = jarDir;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a jar index or unsupported version");
+        }
+        this.jarNames = new String[buffer.getInt(8)];
+        this.packageCount = buffer.getInt(12);
+        int position = 16;
+        for (int i = 0; i < jarNames.length; i++) {
+            jarNames[i] = readString(position);
+            position += 2 + Short.toUnsignedInt(buffer.getShort(position));
+        }
+        this.offsetTable = position;
+    }
+
+    /**
+     * Maps the index file into memory.
+     *
+     * @param jarDir the directory the jar names of the index are relative to
+     */
+    @Nonnull
+    public static JarIndex load(@Nonnull File jarDir, @Nonnull Path indexFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            return new JarIndex(
+                    jarDir, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int getPackageCount() {
+        return packageCount;
+    }
+
+    /** Returns the jars containing classes of exactly the given package. */
+    @Nonnull
+    public Set<File> getJars(@Nonnull String packageName) {
+        final Set<File> jars = new LinkedHashSet<>();
+        final int entry = find(packageName);
+        // find returns packageCount for a name sorting after every indexed package
+        if (entry >= 0
+                && entry < packageCount
+                && packageName.equals(readString(entryOffset(entry)))) {
+            addJars(entry, jars);
+        }
+        return jars;
+    }
+
+    /** Returns the jars containing classes of the given package or any of its subpackages. */
+    @Nonnull
+    public Set<File> getJarsForPrefix(@Nonnull String packagePrefix) {
+        final Set<File> jars = new LinkedHashSet<>();
+        final String subPackagePrefix = packagePrefix + ".";
+        for (int entry = Math.max(find(packagePrefix), 0); entry < packageCount; entry++) {
+            final String name = readString(entryOffset(entry));
+            if (!name.equals(packagePrefix) && !name.startsWith(subPackagePrefix)) {
+                break;
+            }
+            addJars(entry, jars);
+        }
+        return jars;
+    }
+
+    /** Index of the first entry whose package name is not less than the given name. */
+    private int find(@Nonnull String packageName) {
+        int low = 0;
+        int high = packageCount;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (readString(entryOffset(mid)).compareTo(packageName) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void addJars(int entry, @Nonnull Set<File> jars) {
+        int position = entryOffset(entry);
+        position += 2 + Short.toUnsignedInt(buffer.getShort(position));
+        final int jarCount = Short.toUnsignedInt(buffer.getShort(position));
+        for (int i = 0; i < jarCount; i++) {
+            final int jarId = Short.toUnsignedInt(buffer.getShort(position + 2 + 2 * i));
+            jars.add(new File(jarDir, jarNames[jarId]));
+        }
+    }
+
+    private int entryOffset(int entry) {
+        return buffer.getInt(offsetTable + 4 * entry);
+    }
+
+    @Nonnull
+    private String readString(int position) {
+        final byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort(position))];
+        buffer.get(position + 2, bytes);
+        return new String(bytes, UTF_8);
+    }
+}
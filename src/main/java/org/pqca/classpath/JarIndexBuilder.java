@@ -0,0 +1,149 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.classpath;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds the {@link JarIndex} of a dependency jar directory. Run once at image build time:
+ *
+ * <pre>java -cp CBOMkit-action.jar org.pqca.classpath.JarIndexBuilder &lt;jarDir&gt; [indexFile]</pre>
+ */
+public class JarIndexBuilder {
+    private static final Logger LOG = LoggerFactory.getLogger(JarIndexBuilder.class);
+    private static final Pattern VERSIONED_ENTRY = Pattern.compile("^META-INF/versions/\\d+/");
+
+    public static void main(@Nonnull String[] args) throws IOException {
+        if (args.length < 1) {
+            throw new IllegalArgumentException("Usage: JarIndexBuilder <jarDir> [indexFile]");
+        }
+        final File jarDir = new File(args[0]);
+        final File indexFile =
+                args.length > 1 ? new File(args[1]) : new File(jarDir, JarIndex.DEFAULT_FILE_NAME);
+        build(jarDir, indexFile);
+    }
+
+    public static void build(@Nonnull File jarDir, @Nonnull File indexFile) throws IOException {
+        final File[] jarFiles = jarDir.listFiles((dir, name) -> name.endsWith(".jar"));
+        if (jarFiles == null) {
+            throw new IOException("Not a directory: " + jarDir);
+        }
+        Arrays.sort(jarFiles);
+
+        final List<String> jarNames = new ArrayList<>();
+        final Map<String, Set<Integer>> packages = new TreeMap<>();
+        for (File jarFile : jarFiles) {
+            final int jarId = jarNames.size();
+            jarNames.add(jarFile.getName());
+            try (JarFile jar = new JarFile(jarFile)) {
+                final Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    final String packageName = getPackageName(entries.nextElement().getName());
+                    if (packageName != null) {
+                        packages.computeIfAbsent(packageName, p -> new TreeSet<>()).add(jarId);
+                    }
+                }
+            }
+        }
+
+        Files.write(indexFile.toPath(), serialize(jarNames, packages));
+        LOG.info(
+                "Indexed {} packages of {} jars into {}",
+                packages.size(),
+                jarNames.size(),
+                indexFile);
+    }
+
+    @Nullable private static String getPackageName(@Nonnull String entryName) {
+        final Matcher versioned = VERSIONED_ENTRY.matcher(entryName);
+        final String name = versioned.find() ? entryName.substring(versioned.end()) : entryName;
+        if (!name.endsWith(".class") || name.startsWith("META-INF/")) {
+            return null;
+        }
+        final int lastSlash = name.lastIndexOf('/');
+        return lastSlash < 0 ? null : name.substring(0, lastSlash).replace('/', '.');
+    }
+
+    @Nonnull
+    private static byte[] serialize(
+            @Nonnull List<String> jarNames, @Nonnull Map<String, Set<Integer>> packages)
+            throws IOException {
+        final ByteArrayOutputStream header = new ByteArrayOutputStream();
+        final DataOutputStream headerOut = new DataOutputStream(header);
+        headerOut.writeInt(JarIndex.MAGIC);
+        headerOut.writeInt(JarIndex.VERSION);
+        headerOut.writeInt(jarNames.size());
+        headerOut.writeInt(packages.size());
+        for (String jarName : jarNames) {
+            writeString(headerOut, jarName);
+        }
+
+        final ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        final DataOutputStream entriesOut = new DataOutputStream(entries);
+        final int entriesStart = headerOut.size() + 4 * packages.size();
+        final int[] offsets = new int[packages.size()];
+        int entry = 0;
+        for (Map.Entry<String, Set<Integer>> pkg : packages.entrySet()) {
+            offsets[entry++] = entriesStart + entriesOut.size();
+            writeString(entriesOut, pkg.getKey());
+            entriesOut.writeShort(pkg.getValue().size());
+            for (int jarId : pkg.getValue()) {
+                entriesOut.writeShort(jarId);
+            }
+        }
+
+        for (int offset : offsets) {
+            headerOut.writeInt(offset);
+        }
+        entriesOut.flush();
+        headerOut.write(entries.toByteArray());
+        headerOut.flush();
+        return header.toByteArray();
+    }
+
+    private static void writeString(@Nonnull DataOutputStream out, @Nonnull String value)
+            throws IOException {
+        final byte[] bytes = value.getBytes(UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+}
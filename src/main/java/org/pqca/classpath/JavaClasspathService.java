@@ -0,0 +1,207 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.classpath;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.pqca.indexing.IBuildType;
+import org.pqca.indexing.ProjectModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Computes the {@code sonar.java.libraries} value for a java package. With a {@link JarIndex}, the
+ * classpath is trimmed to the jars of the dependency jar directory matching the dependencies
+ * declared in the package's build file, and the jars providing the packages imported or referenced
+ * by fully qualified name in the sources (plus the jars sharing their top level package family,
+ * e.g. all of {@code org.bouncycastle}, for supertypes). ECJ thus never opens jars the package
+ * cannot resolve types against.
+ *
+ * <p>Trimming is a heuristic: a supertype or signature type declared in a jar of another package
+ * family is not resolved, and findings depending on it are lost compared with the full jar
+ * directory. {@code CBOMKIT_JAVA_CLASSPATH=full} keeps every jar on the classpath. Without an index,
+ * or when nothing matches, every jar of the directory is on the classpath as well, since the
+ * declared dependencies alone miss transitive ones.
+ */
+public final class JavaClasspathService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JavaClasspathService.class);
+
+    private static final Pattern IMPORT =
+            Pattern.compile(
+                    "^\\s*import\\s+(?:static\\s+)?([\\w.]+?)(?:\\.\\*)?\\s*;", Pattern.MULTILINE);
+    // qualified type references without import, e.g. new java.security.SecureRandom()
+    private static final Pattern QUALIFIED_NAME =
+            Pattern.compile("(?<![\\w$.])((?:[a-z_][\\w$]*\\.){2,}[A-Z][\\w$]*)");
+    private static final int PACKAGE_FAMILY_DEPTH = 2;
+
+    @Nonnull private final File jarDir;
+    @Nullable private final JarIndex jarIndex;
+    @Nonnull private final List<File> jars;
+    @Nonnull private final Map<String, Set<File>> resolvedImports = new ConcurrentHashMap<>();
+
+    public JavaClasspathService(@Nonnull File jarDir) {
+        this.jarDir = jarDir;
+        this.jarIndex =
+                "full".equals(System.getenv("CBOMKIT_JAVA_CLASSPATH"))
+                        ? null
+                        : loadJarIndex(jarDir);
+        this.jars =
+                Optional.ofNullable(jarDir.listFiles((dir, name) -> name.endsWith(".jar")))
+                        .map(List::of)
+                        .orElse(List.of());
+    }
+
+    @Nullable private static JarIndex loadJarIndex(@Nonnull File jarDir) {
+        final Path indexFile =
+                Optional.ofNullable(System.getenv("CBOMKIT_JAVA_JAR_INDEX"))
+                        .map(Path::of)
+                        .orElse(jarDir.toPath().resolve(JarIndex.DEFAULT_FILE_NAME));
+        if (!Files.isRegularFile(indexFile)) {
+            LOGGER.info("No jar index at {}, using all jars of {}", indexFile, jarDir);
+            return null;
+        }
+        try {
+            final JarIndex index = JarIndex.load(jarDir, indexFile);
+            LOGGER.info("Loaded jar index {} [{} packages]", indexFile, index.getPackageCount());
+            return index;
+        } catch (IOException e) {
+            LOGGER.error("Failed to load jar index {}: {}", indexFile, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the comma separated list of libraries for scanning the modules of a package.
+     *
+     * @param buildType the build type of the package, see {@link
+     *     org.pqca.indexing.IndexingService#getMainBuildTypeFromModuleDirectory(File)}
+     */
+    @Nonnull
+    public String getLibraries(
+            @Nonnull File packageDir,
+            @Nullable IBuildType buildType,
+            @Nonnull List<ProjectModule> modules) {
+        if (jarIndex == null) {
+            return jarDir.getAbsolutePath();
+        }
+        final Set<File> libraries = new TreeSet<>();
+        for (String artifactId : DeclaredDependencies.getArtifactIds(packageDir, buildType)) {
+            jars.stream().filter(jar -> isArtifact(jar, artifactId)).forEach(libraries::add);
+        }
+        for (String referencedName : getReferencedNames(modules)) {
+            libraries.addAll(resolvedImports.computeIfAbsent(referencedName, this::resolve));
+        }
+
+        if (libraries.isEmpty()) {
+            LOGGER.info("No dependency jars matched {}, using all jars of {}", packageDir, jarDir);
+            return jarDir.getAbsolutePath();
+        }
+        LOGGER.info("Using {} of {} jars of {}", libraries.size(), jars.size(), jarDir);
+        return libraries.stream().map(File::getAbsolutePath).collect(Collectors.joining(","));
+    }
+
+    /** Matches {@code <artifactId>.jar} and {@code <artifactId>-<version>.jar}. */
+    private static boolean isArtifact(@Nonnull File jar, @Nonnull String artifactId) {
+        final String name = jar.getName();
+        if (name.equals(artifactId + ".jar")) {
+            return true;
+        }
+        return name.startsWith(artifactId + "-")
+                && name.length() > artifactId.length() + 1
+                && Character.isDigit(name.charAt(artifactId.length() + 1));
+    }
+
+    /** Imported names and fully qualified type references of the sources. */
+    @Nonnull
+    private static Set<String> getReferencedNames(@Nonnull List<ProjectModule> modules) {
+        final Set<String> referencedNames = new LinkedHashSet<>();
+        for (ProjectModule module : modules) {
+            for (InputFile inputFile : module.inputFileList()) {
+                try {
+                    final String contents = inputFile.contents();
+                    final Matcher importMatcher = IMPORT.matcher(contents);
+                    while (importMatcher.find()) {
+                        referencedNames.add(importMatcher.group(1));
+                    }
+                    final Matcher qualifiedMatcher = QUALIFIED_NAME.matcher(contents);
+                    while (qualifiedMatcher.find()) {
+                        referencedNames.add(qualifiedMatcher.group(1));
+                    }
+                } catch (IOException e) {
+                    LOGGER.debug("Could not read imports of {}: {}", inputFile, e.getMessage());
+                }
+            }
+        }
+        return referencedNames;
+    }
+
+    /**
+     * A referenced name is a type, a nested type, a static member or a package. The longest prefix
+     * that is an indexed package determines the jars.
+     */
+    @Nonnull
+    private Set<File> resolve(@Nonnull String importedName) {
+        String candidate = importedName;
+        while (jarIndex != null) {
+            if (!jarIndex.getJars(candidate).isEmpty()) {
+                return jarIndex.getJarsForPrefix(getPackageFamily(candidate));
+            }
+            final int lastDot = candidate.lastIndexOf('.');
+            if (lastDot < 0) {
+                break;
+            }
+            candidate = candidate.substring(0, lastDot);
+        }
+        return Collections.emptySet();
+    }
+
+    @Nonnull
+    private static String getPackageFamily(@Nonnull String packageName) {
+        int end = -1;
+        for (int i = 0; i < PACKAGE_FAMILY_DEPTH; i++) {
+            end = packageName.indexOf('.', end + 1);
+            if (end < 0) {
+                return packageName;
+            }
+        }
+        return packageName.substring(0, end);
+    }
+
+    /** Drops the cached import resolutions, e.g. on heap pressure. */
+    public void clearCache() {
+        resolvedImports.clear();
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Detects generated, minified and oversized source files and routes them to a cheap mode instead
+ * of a full parse: {@code skip} drops them, {@code prefilter} (default) keeps only those
+ * containing a crypto token of the language, {@code scan} keeps all. Configured with {@code
+ * CBOMKIT_GENERATED_FILES} and {@code CBOMKIT_MAX_FILE_SIZE} (bytes, default 1 MB).
+ *
+ * <p>Files that are unchanged since the {@link IndexSnapshot} were accepted before and are not
+ * checked again. The contents of other files are read once, and reused to index them.
+ */
+final class GeneratedFileFilter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GeneratedFileFilter.class);
+
+    enum Mode {
+        SKIP,
+        PREFILTER,
+        SCAN
+    }
+
+    private static final int HEADER_BYTES = 4096;
+    private static final int MINIFIED_LINE_LENGTH = 1000;
+    private static final long DEFAULT_MAX_FILE_SIZE = 1024 * 1024;
+    private static final List<String> GENERATED_MARKERS =
+            List.of(
+                    "@generated",
+                    "do not edit",
+                    "generated by the protocol buffer compiler",
+                    "code generated by",
+                    "autogenerated",
+                    "auto-generated");
+
+    @Nonnull private final Mode mode;
+    private final long maxFileSize;
+    @Nonnull private final AtomicLong skippedFiles = new AtomicLong();
+    @Nonnull private final AtomicLong skippedBytes = new AtomicLong();
+    @Nonnull private final AtomicLong keptFiles = new AtomicLong();
+
+    /** Contents of a file, read at most once. */
+    static final class Contents {
+        @Nonnull private final File file;
+        @Nullable private byte[] bytes;
+
+        Contents(@Nonnull File file) {
+            this.file = file;
+        }
+
+        @Nonnull
+        byte[] get() throws IOException {
+            if (bytes == null) {
+                bytes = Files.readAllBytes(file.toPath());
+            }
+            return bytes;
+        }
+    }
+
+    GeneratedFileFilter(@Nonnull Mode mode, long maxFileSize) {
+        this.mode = mode;
+        this.maxFileSize = maxFileSize;
+    }
+
+    @Nonnull
+    static GeneratedFileFilter fromEnvironment() {
+        final Mode mode =
+                Optional.ofNullable(System.getenv("CBOMKIT_GENERATED_FILES"))
+                        .map(m -> Mode.valueOf(m.trim().toUpperCase(Locale.ROOT)))
+                        .orElse(Mode.PREFILTER);
+        final long maxFileSize =
+                Optional.ofNullable(System.getenv("CBOMKIT_MAX_FILE_SIZE"))
+                        .map(Long::parseLong)
+                        .orElse(DEFAULT_MAX_FILE_SIZE);
+        return new GeneratedFileFilter(mode, maxFileSize);
+    }
+
+    /** Settings that decide which files are accepted, kept with the index snapshot. */
+    @Nonnull
+    String getSettings() {
+        return mode + ":" + maxFileSize;
+    }
+
+    /**
+     * Decides whether the file is indexed.
+     *
+     * @param contents contents of the file, read only if needed
+     * @param generatedPath whether the file is at a known generator output path
+     * @param cryptoTokens tokens of which at least one must occur in a generated file to keep it
+     *     in {@code prefilter} mode
+     */
+    boolean accept(
+            @Nonnull File file,
+            @Nonnull Contents contents,
+            boolean generatedPath,
+            @Nonnull List<String> cryptoTokens) {
+        if (mode == Mode.SCAN) {
+            return true;
+        }
+        final long size = file.length();
+        final String reason;
+        try {
+            if (size > maxFileSize) {
+                reason = "oversized";
+            } else if (generatedPath) {
+                reason = "generated path";
+            } else {
+                final byte[] bytes = contents.get();
+                final String header =
+                        new String(bytes, 0, Math.min(bytes.length, HEADER_BYTES), ISO_8859_1);
+                if (isGeneratedHeader(header)) {
+                    reason = "generated header";
+                } else if (isMinified(header)) {
+                    reason = "minified";
+                } else {
+                    return true;
+                }
+            }
+            if (mode == Mode.PREFILTER && containsAny(contents.get(), cryptoTokens)) {
+                LOGGER.debug("Scanning {} file {}, it contains crypto tokens", reason, file);
+                keptFiles.incrementAndGet();
+                return true;
+            }
+        } catch (IOException e) {
+            LOGGER.debug(e.getLocalizedMessage());
+            return true;
+        }
+        skippedFiles.incrementAndGet();
+        skippedBytes.addAndGet(size);
+        return false;
+    }
+
+    private static boolean isGeneratedHeader(@Nonnull String header) {
+        final String lowerCaseHeader = header.toLowerCase(Locale.ROOT);
+        return GENERATED_MARKERS.stream().anyMatch(lowerCaseHeader::contains)
+                || header.contains("@Generated(")
+                || header.contains("@javax.annotation.Generated")
+                || header.contains("@jakarta.annotation.Generated");
+    }
+
+    private static boolean isMinified(@Nonnull String header) {
+        int lineStart = 0;
+        for (int i = 0; i < header.length(); i++) {
+            if (header.charAt(i) == '\n') {
+                lineStart = i + 1;
+            } else if (i - lineStart > MINIFIED_LINE_LENGTH) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsAny(@Nonnull byte[] bytes, @Nonnull List<String> tokens) {
+        // ISO-8859-1 maps every byte, so ASCII tokens are found in any ASCII compatible encoding
+        final String contents = new String(bytes, ISO_8859_1);
+        return tokens.stream().anyMatch(contents::contains);
+    }
+
+    void logSummary(@Nonnull String languageIdentifier) {
+        if (skippedFiles.get() > 0 || keptFiles.get() > 0) {
+            LOGGER.info(
+                    "Skipped {} generated, minified or oversized {} files ({} bytes not parsed),"
+                            + " kept {} of them for their crypto tokens",
+                    skippedFiles.get(),
+                    languageIdentifier,
+                    skippedBytes.get(),
+                    keptFiles.get());
+        }
+    }
+
+    long getSkippedBytes() {
+        return skippedBytes.get();
+    }
+
+    long getSkippedFiles() {
+        return skippedFiles.get();
+    }
+}
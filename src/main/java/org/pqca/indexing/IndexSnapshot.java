@@ -0,0 +1,247 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.indexing;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Snapshot of the indexed workspace, persisted in {@code CBOMKIT_CACHE_DIR} between runs. It holds
+ * the listing and mtime of every visited directory and the size, mtime and charset of every indexed
+ * file. A directory whose mtime is unchanged is not listed again, and a file whose size and mtime
+ * are unchanged is not read during indexing: its contents are loaded lazily when it is scanned.
+ * The snapshot only holds files accepted by the {@link GeneratedFileFilter}, so it is ignored when
+ * the settings of the filter changed.
+ */
+public final class IndexSnapshot {
+    private static final Logger LOG = LoggerFactory.getLogger(IndexSnapshot.class);
+
+    private static final int MAGIC = 0x43424958; // CBIX
+    private static final int VERSION = 3;
+    private static final String FILE_NAME = "index-snapshot.bin";
+
+    private record DirectoryEntry(long mtime, @Nonnull String[] names) {}
+
+    private record FileEntry(long size, long mtime, @Nonnull Charset charset) {}
+
+    @Nonnull private final Path workspace;
+    @Nonnull private final Path snapshotFile;
+    @Nonnull private final Map<String, DirectoryEntry> previousDirectories;
+    @Nonnull private final Map<String, FileEntry> previousFiles;
+    @Nonnull private final Map<String, DirectoryEntry> directories = new ConcurrentHashMap<>();
+    @Nonnull private final Map<String, FileEntry> files = new ConcurrentHashMap<>();
+
+    private IndexSnapshot(
+            @Nonnull Path workspace,
+            @Nonnull Path snapshotFile,
+            @Nonnull Map<String, DirectoryEntry> previousDirectories,
+            @Nonnull Map<String, FileEntry> previousFiles) {
+        this.workspace = workspace;
+        this.snapshotFile = snapshotFile;
+        this.previousDirectories = previousDirectories;
+        this.previousFiles = previousFiles;
+    }
+
+    /** Loads the snapshot of the workspace from {@code CBOMKIT_CACHE_DIR}, if set. */
+    @Nullable
+    public static IndexSnapshot fromEnvironment(@Nonnull File workspace) {
+        return fromEnvironment(workspace, null);
+    }
+
+    /**
+     * Loads the snapshot of the workspace from {@code CBOMKIT_CACHE_DIR}, if set.
+     *
+     * @param name name distinguishing the snapshots of several workspaces sharing the cache dir
+     */
+    @Nullable
+    public static IndexSnapshot fromEnvironment(@Nonnull File workspace, @Nullable String name) {
+        final String fileName = name == null ? FILE_NAME : "index-snapshot-" + name + ".bin";
+        return Optional.ofNullable(System.getenv("CBOMKIT_CACHE_DIR"))
+                .map(cacheDir -> load(workspace.toPath(), Path.of(cacheDir, fileName)))
+                .orElse(null);
+    }
+
+    @Nonnull
+    public static IndexSnapshot load(@Nonnull Path workspace, @Nonnull Path snapshotFile) {
+        final Map<String, DirectoryEntry> directories = new ConcurrentHashMap<>();
+        final Map<String, FileEntry> files = new ConcurrentHashMap<>();
+        if (Files.isRegularFile(snapshotFile)) {
+            try (DataInputStream in =
+                    new DataInputStream(
+                            new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    throw new IOException("Unsupported index snapshot " + snapshotFile);
+                }
+                if (!getFilterSettings().equals(in.readUTF())) {
+                    throw new IOException("The generated file settings changed");
+                }
+                final int directoryCount = in.readInt();
+                for (int i = 0; i < directoryCount; i++) {
+                    final String path = in.readUTF();
+                    final long mtime = in.readLong();
+                    final String[] names = new String[in.readInt()];
+                    for (int n = 0; n < names.length; n++) {
+                        names[n] = in.readUTF();
+                    }
+                    directories.put(path, new DirectoryEntry(mtime, names));
+                }
+                final int fileCount = in.readInt();
+                for (int i = 0; i < fileCount; i++) {
+                    final String path = in.readUTF();
+                    final long size = in.readLong();
+                    final long mtime = in.readLong();
+                    final Charset charset = in.readBoolean() ? UTF_8 : ISO_8859_1;
+                    files.put(path, new FileEntry(size, mtime, charset));
+                }
+                LOG.info(
+                        "Loaded index snapshot {} ({} directories, {} files)",
+                        snapshotFile,
+                        directoryCount,
+                        fileCount);
+            } catch (IOException e) {
+                LOG.warn("Ignoring index snapshot {}: {}", snapshotFile, e.getMessage());
+                directories.clear();
+                files.clear();
+            }
+        }
+        return new IndexSnapshot(workspace, snapshotFile, directories, files);
+    }
+
+    @Nonnull
+    private static String getFilterSettings() {
+        return GeneratedFileFilter.fromEnvironment().getSettings();
+    }
+
+    @Nonnull
+    private String key(@Nonnull File file) {
+        return workspace.relativize(file.toPath()).toString();
+    }
+
+    /** Lists a directory, from the snapshot if its mtime is unchanged. */
+    @Nullable
+    public File[] listFiles(@Nonnull File directory) {
+        final String key = key(directory);
+        final long mtime = directory.lastModified();
+        final DirectoryEntry previous = previousDirectories.get(key);
+        if (previous != null && previous.mtime() == mtime && mtime != 0) {
+            directories.put(key, previous);
+            final File[] listing = new File[previous.names().length];
+            for (int i = 0; i < listing.length; i++) {
+                listing[i] = new File(directory, previous.names()[i]);
+            }
+            return listing;
+        }
+        final String[] names = directory.list();
+        if (names == null) {
+            return null;
+        }
+        directories.put(key, new DirectoryEntry(mtime, names));
+        final File[] listing = new File[names.length];
+        for (int i = 0; i < listing.length; i++) {
+            listing[i] = new File(directory, names[i]);
+        }
+        return listing;
+    }
+
+    /**
+     * Returns the charset of the file if it is unchanged since the snapshot, in which case its
+     * contents do not need to be read for indexing.
+     */
+    @Nullable
+    public Charset getUnchangedCharset(@Nonnull File file) {
+        final String key = key(file);
+        final FileEntry previous = previousFiles.get(key);
+        if (previous == null
+                || previous.size() != file.length()
+                || previous.mtime() != file.lastModified()) {
+            return null;
+        }
+        files.put(key, previous);
+        return previous.charset();
+    }
+
+    /** Records a file read during indexing. */
+    public void recordFile(@Nonnull File file, @Nonnull Charset charset) {
+        files.put(key(file), new FileEntry(file.length(), file.lastModified(), charset));
+    }
+
+    /** Writes the directories and files visited in this run. */
+    public synchronized void save() {
+        try {
+            Files.createDirectories(snapshotFile.getParent());
+            final Path tmpFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            try (DataOutputStream out =
+                    new DataOutputStream(
+                            new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(getFilterSettings());
+                final Map<String, DirectoryEntry> directorySnapshot = Map.copyOf(directories);
+                out.writeInt(directorySnapshot.size());
+                for (Map.Entry<String, DirectoryEntry> entry : directorySnapshot.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue().mtime());
+                    out.writeInt(entry.getValue().names().length);
+                    for (String name : entry.getValue().names()) {
+                        out.writeUTF(name);
+                    }
+                }
+                final Map<String, FileEntry> fileSnapshot = Map.copyOf(files);
+                out.writeInt(fileSnapshot.size());
+                for (Map.Entry<String, FileEntry> entry : fileSnapshot.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue().size());
+                    out.writeLong(entry.getValue().mtime());
+                    out.writeBoolean(UTF_8.equals(entry.getValue().charset()));
+                }
+            }
+            Files.move(
+                    tmpFile,
+                    snapshotFile,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            LOG.info(
+                    "Saved index snapshot {} ({} directories, {} files)",
+                    snapshotFile,
+                    directories.size(),
+                    files.size());
+        } catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+        }
+    }
+}
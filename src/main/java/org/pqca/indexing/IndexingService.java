@@ -26,8 +26,10 @@ import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
+import java.nio.charset.CodingErrorAction;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -44,14 +46,22 @@ public abstract class IndexingService {
     private final String languageFileExtension;
     @Nonnull private File baseDirectory;
     @Nullable private IBuildType mainBuildType;
+    @Nullable private final IndexSnapshot snapshot;
+    @Nullable private final DirectoryWalker directoryWalker;
+    @Nonnull private final GeneratedFileFilter generatedFileFilter;
 
     protected IndexingService(
             @Nonnull File baseDirectory,
             @Nonnull String languageIdentifier,
-            @Nonnull String languageFileExtension) {
+            @Nonnull String languageFileExtension,
+            @Nullable IndexSnapshot snapshot,
+            @Nullable DirectoryWalker directoryWalker) {
         this.baseDirectory = baseDirectory;
         this.languageIdentifier = languageIdentifier;
         this.languageFileExtension = languageFileExtension;
+        this.snapshot = snapshot;
+        this.directoryWalker = directoryWalker;
+        this.generatedFileFilter = GeneratedFileFilter.fromEnvironment();
     }
 
     @Nonnull
@@ -60,6 +70,7 @@ public abstract class IndexingService {
                 .ifPresent(path -> baseDirectory = baseDirectory.toPath().resolve(path).toFile());
         final List<ProjectModule> projectModules = new ArrayList<>();
         detectModules(baseDirectory, projectModules);
+        generatedFileFilter.logSummary(languageIdentifier);
         return projectModules;
     }
 
@@ -77,12 +88,12 @@ public abstract class IndexingService {
             addProjectModuleFromDirectory(projectModules, projectDirectory);
         } else {
             // this directory is not a module
-            final File[] filesInDir = projectDirectory.listFiles();
+            final File[] filesInDir = listFiles(projectDirectory);
             if (filesInDir == null) {
                 return;
             }
             for (File file : filesInDir) {
-                if (file.isDirectory() && !file.getName().equals(".git")) {
+                if (isDirectory(file) && !file.getName().equals(".git")) {
                     this.detectModules(file, projectModules);
                 }
             }
@@ -93,10 +104,25 @@ public abstract class IndexingService {
         }
     }
 
+    /**
+     * Indexes only the module in the given directory, e.g. to rescan it after a change. Returns an
+     * empty list if the directory has no files of the language.
+     */
+    @Nonnull
+    public List<ProjectModule> indexModule(@Nonnull File moduleDirectory) {
+        final List<ProjectModule> projectModules = new ArrayList<>();
+        addProjectModuleFromDirectory(projectModules, moduleDirectory);
+        // nested modules are indexed separately
+        final String projectIdentifier = getProjectIdentifier(moduleDirectory);
+        return projectModules.stream()
+                .filter(module -> module.identifier().equals(projectIdentifier))
+                .toList();
+    }
+
     void addProjectModuleFromDirectory(
             @Nonnull List<ProjectModule> projectModules, @Nonnull File projectDirectory) {
         final String projectIdentifier = getProjectIdentifier(projectDirectory);
-        final File[] filesInDirectory = projectDirectory.listFiles();
+        final File[] filesInDirectory = listFiles(projectDirectory);
         final List<InputFile> files = new ArrayList<>();
         collectInputFiles(filesInDirectory, projectDirectory, projectModules, files);
 
@@ -119,12 +145,12 @@ public abstract class IndexingService {
             return;
         }
         for (File file : fileList) {
-            if (file.isDirectory() && !file.getName().equals(".git")) {
+            if (isDirectory(file) && !file.getName().equals(".git")) {
                 if (isModule(file)) {
                     addProjectModuleFromDirectory(projectModules, file);
                 } else {
                     collectInputFiles(
-                            file.listFiles(), projectDirectory, projectModules, inputFiles);
+                            listFiles(file), projectDirectory, projectModules, inputFiles);
                 }
                 continue;
             }
@@ -134,8 +160,10 @@ public abstract class IndexingService {
                 try {
                     final TestInputFileBuilder builder =
                             createTestFileBuilder(projectDirectory, file);
-                    builder.setLanguage(this.languageIdentifier);
-                    inputFiles.add(builder.build());
+                    if (builder != null) {
+                        builder.setLanguage(this.languageIdentifier);
+                        inputFiles.add(builder.build());
+                    }
                 } catch (IOException iox) {
                     LOGGER.debug(iox.getLocalizedMessage());
                 }
@@ -143,23 +171,63 @@ public abstract class IndexingService {
         }
     }
 
-    @Nonnull
+    @Nullable
+    private File[] listFiles(@Nonnull File directory) {
+        if (directoryWalker != null) {
+            return directoryWalker.listFiles(directory);
+        }
+        return snapshot == null ? directory.listFiles() : snapshot.listFiles(directory);
+    }
+
+    private boolean isDirectory(@Nonnull File file) {
+        return directoryWalker == null ? file.isDirectory() : directoryWalker.isDirectory(file);
+    }
+
+    /**
+     * Creates the input file, or returns {@code null} if the generated file filter skips it. Files
+     * unchanged since the snapshot were accepted by the filter before and are not read.
+     */
+    @Nullable
     protected TestInputFileBuilder createTestFileBuilder(
             @Nonnull File projectDirectory, @Nonnull File file) throws IOException {
+        final Charset unchangedCharset =
+                snapshot == null ? null : snapshot.getUnchangedCharset(file);
+        if (unchangedCharset != null) {
+            // contents are read when the file is scanned
+            return new TestInputFileBuilder("", projectDirectory, file)
+                    .setProjectBaseDir(projectDirectory.toPath())
+                    .setCharset(unchangedCharset)
+                    .setType(InputFile.Type.MAIN);
+        }
+        final GeneratedFileFilter.Contents fileContents = new GeneratedFileFilter.Contents(file);
+        if (!generatedFileFilter.accept(
+                file, fileContents, isGeneratedPath(file), getCryptoTokens())) {
+            return null;
+        }
+        // the bytes read by the filter are decoded, the file is not read again
+        final byte[] bytes = fileContents.get();
         Charset encoding = null;
         String contents = null;
         for (Charset cs : List.of(UTF_8, ISO_8859_1)) {
             try {
-                contents = Files.readString(file.toPath(), cs);
+                contents =
+                        cs.newDecoder()
+                                .onMalformedInput(CodingErrorAction.REPORT)
+                                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                                .decode(ByteBuffer.wrap(bytes))
+                                .toString();
                 encoding = cs;
                 break;
-            } catch (Exception error) {
+            } catch (CharacterCodingException error) {
                 LOGGER.error("Error reading file {}: {}", file.getPath(), error.getMessage());
             }
         }
         if (contents == null || encoding == null) {
             throw new IOException("Invalid encoding of file " + file);
         }
+        if (snapshot != null) {
+            snapshot.recordFile(file, encoding);
+        }
         return new TestInputFileBuilder("", projectDirectory, file)
                 .setProjectBaseDir(projectDirectory.toPath())
                 .setContents(contents)
@@ -179,7 +247,40 @@ public abstract class IndexingService {
 
     abstract boolean isModule(@Nonnull File directory);
 
-    @Nullable abstract IBuildType getMainBuildTypeFromModuleDirectory(@Nonnull File directory);
+    @Nullable public abstract IBuildType getMainBuildTypeFromModuleDirectory(
+            @Nonnull File directory);
 
     abstract boolean excludeFromIndexing(@Nonnull File file);
+
+    /**
+     * Whether the file is in a directory where code generators or vendoring tools put their
+     * output. Generated file names are left to the header check of the {@link
+     * GeneratedFileFilter}, as hand-written files may follow the same naming.
+     */
+    abstract boolean isGeneratedPath(@Nonnull File file);
+
+    /**
+     * Whether the directory of the file contains the given directories as consecutive path
+     * segments, e.g. {@code build/generated}, so that names merely starting alike, such as {@code
+     * build/generated-docs}, do not match.
+     */
+    static boolean isInDirectories(@Nonnull File file, @Nonnull String directories) {
+        final Path parent = file.toPath().getParent();
+        final Path path = Path.of(directories);
+        if (parent == null) {
+            return false;
+        }
+        for (int i = 0; i + path.getNameCount() <= parent.getNameCount(); i++) {
+            if (parent.subpath(i, i + path.getNameCount()).equals(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tokens of crypto APIs of the language; generated files without any of them are not parsed.
+     */
+    @Nonnull
+    public abstract List<String> getCryptoTokens();
 }
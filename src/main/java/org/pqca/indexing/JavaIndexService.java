@@ -25,9 +25,33 @@ import java.util.List;
 import javax.annotation.Nullable;
 
 public final class JavaIndexService extends IndexingService {
+    private static final List<String> CRYPTO_TOKENS =
+            List.of(
+                    "javax.crypto",
+                    "java.security",
+                    "javax.net.ssl",
+                    "org.bouncycastle",
+                    "com.google.crypto.tink",
+                    "Cipher",
+                    "MessageDigest",
+                    "KeyGenerator",
+                    "KeyPairGenerator",
+                    "SecretKey",
+                    "Signature");
 
     public JavaIndexService(@Nonnull File baseDirectory) {
-        super(baseDirectory, "java", ".java");
+        this(baseDirectory, null);
+    }
+
+    public JavaIndexService(@Nonnull File baseDirectory, @Nullable IndexSnapshot snapshot) {
+        this(baseDirectory, snapshot, null);
+    }
+
+    public JavaIndexService(
+            @Nonnull File baseDirectory,
+            @Nullable IndexSnapshot snapshot,
+            @Nullable DirectoryWalker directoryWalker) {
+        super(baseDirectory, "java", ".java", snapshot, directoryWalker);
     }
 
     @Override
@@ -46,7 +70,7 @@ public final class JavaIndexService extends IndexingService {
     }
 
     @Nullable @Override
-    IBuildType getMainBuildTypeFromModuleDirectory(@Nonnull File directory) {
+    public IBuildType getMainBuildTypeFromModuleDirectory(@Nonnull File directory) {
         if (!directory.isDirectory()) {
             return null;
         }
@@ -69,4 +93,19 @@ public final class JavaIndexService extends IndexingService {
     boolean excludeFromIndexing(@Nonnull File file) {
         return file.getPath().contains("src/test/java") || file.getName().contains("package-info");
     }
+
+    @Override
+    boolean isGeneratedPath(@Nonnull File file) {
+        return isInDirectories(file, "target/generated-sources")
+                || isInDirectories(file, "target/generated-test-sources")
+                || isInDirectories(file, "build/generated")
+                || isInDirectories(file, "build/generated-sources")
+                || isInDirectories(file, "generated-src");
+    }
+
+    @Nonnull
+    @Override
+    public List<String> getCryptoTokens() {
+        return CRYPTO_TOKENS;
+    }
 }
@@ -25,9 +25,30 @@ import java.util.List;
 import javax.annotation.Nullable;
 
 public final class PythonIndexService extends IndexingService {
+    private static final List<String> CRYPTO_TOKENS =
+            List.of(
+                    "cryptography",
+                    "Crypto",
+                    "Cryptodome",
+                    "hashlib",
+                    "hmac",
+                    "ssl",
+                    "nacl",
+                    "jwt");
 
     public PythonIndexService(@Nonnull File baseDirectory) {
-        super(baseDirectory, "python", ".py");
+        this(baseDirectory, null);
+    }
+
+    public PythonIndexService(@Nonnull File baseDirectory, @Nullable IndexSnapshot snapshot) {
+        this(baseDirectory, snapshot, null);
+    }
+
+    public PythonIndexService(
+            @Nonnull File baseDirectory,
+            @Nullable IndexSnapshot snapshot,
+            @Nullable DirectoryWalker directoryWalker) {
+        super(baseDirectory, "python", ".py", snapshot, directoryWalker);
     }
 
     @Override
@@ -42,7 +63,7 @@ public final class PythonIndexService extends IndexingService {
     }
 
     @Nullable @Override
-    IBuildType getMainBuildTypeFromModuleDirectory(@Nonnull File directory) {
+    public IBuildType getMainBuildTypeFromModuleDirectory(@Nonnull File directory) {
         if (!directory.isDirectory()) {
             return null;
         }
@@ -65,4 +86,17 @@ public final class PythonIndexService extends IndexingService {
     boolean excludeFromIndexing(@Nonnull File file) {
         return file.getPath().contains("tests/");
     }
+
+    @Override
+    boolean isGeneratedPath(@Nonnull File file) {
+        return isInDirectories(file, "site-packages")
+                || isInDirectories(file, "vendor")
+                || isInDirectories(file, "_vendor");
+    }
+
+    @Nonnull
+    @Override
+    public List<String> getCryptoTokens() {
+        return CRYPTO_TOKENS;
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.metrics;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Flight recording of the whole run into {@code cbomkit.jfr} in the output dir, started when
+ * {@code CBOMKIT_JFR} is {@code true}. The {@code profile} settings are used, so the {@link
+ * ScanEvents} are recorded together with method samples and allocations.
+ */
+public final class FlightRecording implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(FlightRecording.class);
+    private static final String FILE_NAME = "cbomkit.jfr";
+
+    @Nonnull private final Recording recording;
+    @Nonnull private final File destination;
+
+    private FlightRecording(@Nonnull Recording recording, @Nonnull File destination) {
+        this.recording = recording;
+        this.destination = destination;
+    }
+
+    /** Starts a recording if {@code CBOMKIT_JFR} is {@code true}, otherwise returns null. */
+    @Nullable
+    public static FlightRecording startFromEnvironment(@Nonnull File outputDir) {
+        if (!Boolean.parseBoolean(System.getenv("CBOMKIT_JFR"))) {
+            return null;
+        }
+        final File destination = new File(outputDir, FILE_NAME);
+        try {
+            final Recording recording =
+                    new Recording(Configuration.getConfiguration("profile"));
+            recording.setName("cbomkit");
+            recording.setDestination(destination.toPath());
+            // the recording is still written if the run ends abnormally
+            recording.setDumpOnExit(true);
+            recording.start();
+            LOG.info("Started flight recording into '{}'", destination);
+            return new FlightRecording(recording, destination);
+        } catch (IOException | ParseException e) {
+            LOG.error(e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /** Stops the recording, which writes it to the destination. */
+    @Override
+    public void close() {
+        recording.stop();
+        recording.close();
+        LOG.info("Wrote flight recording '{}' ({} bytes)", destination, destination.length());
+    }
+}
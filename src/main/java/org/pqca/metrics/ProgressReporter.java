@@ -0,0 +1,171 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.metrics;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes scan progress as newline delimited JSON events to the file or FIFO given by {@code
+ * CBOMKIT_PROGRESS_FILE}: {@code package_start}, {@code package_finish}, {@code module_start},
+ * {@code module_finish}, {@code progress} (at most once per second while files are finished) and
+ * {@code scan_finish}. Every event carries the files done and total, the findings so far, the
+ * throughput in files per second and an ETA in seconds. Without the variable, nothing is written.
+ */
+public final class ProgressReporter {
+    private static final Logger LOG = LoggerFactory.getLogger(ProgressReporter.class);
+    private static final long PROGRESS_INTERVAL_MILLIS = 1000;
+
+    private static final ProgressReporter INSTANCE = fromEnvironment();
+
+    @Nullable private final JsonGenerator json;
+    private final long startMillis = System.currentTimeMillis();
+    private final AtomicLong filesTotal = new AtomicLong();
+    private final AtomicLong filesDone = new AtomicLong();
+    private final AtomicLong findings = new AtomicLong();
+    private final AtomicLong lastProgressMillis = new AtomicLong();
+
+    private ProgressReporter(@Nullable JsonGenerator json) {
+        this.json = json;
+    }
+
+    @Nonnull
+    public static ProgressReporter getInstance() {
+        return INSTANCE;
+    }
+
+    @Nonnull
+    private static ProgressReporter fromEnvironment() {
+        final String progressFile = System.getenv("CBOMKIT_PROGRESS_FILE");
+        if (progressFile == null) {
+            return new ProgressReporter(null);
+        }
+        try {
+            // opening a FIFO blocks until the reader is attached
+            final Writer writer =
+                    new OutputStreamWriter(
+                            new FileOutputStream(progressFile, true), StandardCharsets.UTF_8);
+            final JsonGenerator json =
+                    new JsonFactory().setRootValueSeparator(null).createGenerator(writer);
+            LOG.info("Writing progress events to {}", progressFile);
+            return new ProgressReporter(json);
+        } catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+            return new ProgressReporter(null);
+        }
+    }
+
+    public boolean isEnabled() {
+        return json != null;
+    }
+
+    /** Adds files to the expected total, as soon as the packages to scan are known. */
+    public void addFilesTotal(long files) {
+        filesTotal.addAndGet(files);
+    }
+
+    public void packageStarted(@Nonnull String packageName, long files) {
+        emit("package_start", packageName, null, files);
+    }
+
+    public void packageFinished(@Nonnull String packageName) {
+        emit("package_finish", packageName, null, -1);
+    }
+
+    public void moduleStarted(@Nonnull String module, long files) {
+        emit("module_start", null, module, files);
+    }
+
+    public void moduleFinished(@Nonnull String module) {
+        emit("module_finish", null, module, -1);
+    }
+
+    public void fileFinished() {
+        filesDone.incrementAndGet();
+        final long now = System.currentTimeMillis();
+        final long last = lastProgressMillis.get();
+        if (now - last >= PROGRESS_INTERVAL_MILLIS
+                && lastProgressMillis.compareAndSet(last, now)) {
+            emit("progress", null, null, -1);
+        }
+    }
+
+    public void findingsAdded(long count) {
+        findings.addAndGet(count);
+    }
+
+    public void scanFinished() {
+        emit("scan_finish", null, null, -1);
+    }
+
+    private void emit(
+            @Nonnull String event,
+            @Nullable String packageName,
+            @Nullable String module,
+            long files) {
+        if (json == null) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        final long done = filesDone.get();
+        final long total = filesTotal.get();
+        final double seconds = Math.max(1, now - startMillis) / 1000.0;
+        final double filesPerSecond = done / seconds;
+        synchronized (json) {
+            try {
+                json.writeStartObject();
+                json.writeStringField("event", event);
+                json.writeNumberField("time", now);
+                if (packageName != null) {
+                    json.writeStringField("package", packageName);
+                }
+                if (module != null) {
+                    json.writeStringField("module", module);
+                }
+                if (files >= 0) {
+                    json.writeNumberField("files", files);
+                }
+                json.writeNumberField("filesDone", done);
+                json.writeNumberField("filesTotal", total);
+                json.writeNumberField("findings", findings.get());
+                json.writeNumberField("filesPerSecond", filesPerSecond);
+                if (filesPerSecond > 0 && total >= done) {
+                    json.writeNumberField(
+                            "etaSeconds", Math.round((total - done) / filesPerSecond));
+                }
+                json.writeEndObject();
+                json.writeRaw('\n');
+                json.flush();
+            } catch (IOException e) {
+                LOG.error(e.getMessage(), e);
+            }
+        }
+    }
+}
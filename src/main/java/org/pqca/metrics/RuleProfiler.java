@@ -0,0 +1,170 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.metrics;
+
+import com.ibm.engine.detection.Finding;
+import com.ibm.engine.rule.IBundle;
+import com.ibm.engine.rule.IDetectionRule;
+import jakarta.annotation.Nonnull;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opt-in profile of the detection and translation cost, enabled with {@code
+ * CBOMKIT_PROFILE_RULES}. Invocations and cumulative time are recorded per step and name: {@code
+ * translate} per detection rule bundle, i.e. per crypto library, and {@code detect} per language
+ * only. The plugin evaluates all of its detection rules inside one visit of a tree node or file
+ * and exposes no per-rule callback, so the detection time cannot be attributed to a rule or
+ * bundle; it excludes the handling of findings, which the rules report while they are evaluated.
+ * The ranked report is written to {@code rule-profile.tsv} in the output dir, with the share of
+ * each entry in the time of its step.
+ */
+public final class RuleProfiler {
+    private static final Logger LOG = LoggerFactory.getLogger(RuleProfiler.class);
+    private static final String REPORT_FILE_NAME = "rule-profile.tsv";
+    private static final int LOGGED_ENTRIES = 10;
+
+    private static final RuleProfiler INSTANCE =
+            new RuleProfiler(Boolean.parseBoolean(System.getenv("CBOMKIT_PROFILE_RULES")));
+
+    private record Key(@Nonnull String step, @Nonnull String name) {}
+
+    private record Stats(@Nonnull LongAdder invocations, @Nonnull LongAdder nanos) {
+        Stats() {
+            this(new LongAdder(), new LongAdder());
+        }
+    }
+
+    private final boolean enabled;
+    @Nonnull private final Map<Key, Stats> stats = new ConcurrentHashMap<>();
+
+    private RuleProfiler(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Nonnull
+    public static RuleProfiler getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Returns the start time for {@link #record}, or {@code 0} when profiling is disabled. */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /** Records one invocation of the step that began at {@code startNanos}. */
+    public void record(@Nonnull String step, @Nonnull String name, long startNanos) {
+        record(step, name, startNanos, 0);
+    }
+
+    /**
+     * Records one invocation of the step that began at {@code startNanos}, without the time of
+     * nested work accounted elsewhere.
+     */
+    public void record(
+            @Nonnull String step, @Nonnull String name, long startNanos, long excludedNanos) {
+        if (!enabled) {
+            return;
+        }
+        final long nanos = System.nanoTime() - startNanos - excludedNanos;
+        final Stats entry = stats.computeIfAbsent(new Key(step, name), key -> new Stats());
+        entry.invocations().increment();
+        entry.nanos().add(nanos);
+    }
+
+    /** Identifier of the bundle (library) of the detection rule that produced the finding. */
+    @Nonnull
+    public static String getBundle(@Nonnull Finding<?, ?, ?, ?> finding) {
+        return Optional.ofNullable(finding.detectionStore().getDetectionRule())
+                .map(IDetectionRule::bundle)
+                .map(IBundle::getIdentifier)
+                .orElse("unknown");
+    }
+
+    /** Writes the entries ranked by cumulative time, then by invocations. */
+    public void writeReport(@Nonnull File outputDir) {
+        if (!enabled || stats.isEmpty()) {
+            return;
+        }
+        final List<Map.Entry<Key, Stats>> ranked =
+                stats.entrySet().stream()
+                        .sorted(
+                                Comparator.comparingLong(
+                                                (Map.Entry<Key, Stats> e) ->
+                                                        e.getValue().nanos().sum())
+                                        .thenComparingLong(e -> e.getValue().invocations().sum())
+                                        .reversed())
+                        .toList();
+        final Map<String, Long> stepNanos =
+                ranked.stream()
+                        .collect(
+                                Collectors.groupingBy(
+                                        e -> e.getKey().step(),
+                                        Collectors.summingLong(e -> e.getValue().nanos().sum())));
+        final File reportFile = new File(outputDir, REPORT_FILE_NAME);
+        try (FileWriter writer = new FileWriter(reportFile)) {
+            writer.write("step\tname\tinvocations\ttotal_ms\tmean_us\tshare\n");
+            for (Map.Entry<Key, Stats> entry : ranked) {
+                writer.write(format(entry, stepNanos.get(entry.getKey().step())) + "\n");
+            }
+        } catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+            return;
+        }
+        LOG.info("Wrote rule profile with {} entries to {}", ranked.size(), reportFile);
+        ranked.stream()
+                .limit(LOGGED_ENTRIES)
+                .forEach(
+                        entry ->
+                                LOG.info(
+                                        "Rule profile: {}",
+                                        format(entry, stepNanos.get(entry.getKey().step()))));
+    }
+
+    @Nonnull
+    private static String format(@Nonnull Map.Entry<Key, Stats> entry, long stepNanos) {
+        final long invocations = entry.getValue().invocations().sum();
+        final long nanos = entry.getValue().nanos().sum();
+        return String.format(
+                Locale.ROOT,
+                "%s\t%s\t%d\t%.1f\t%.1f\t%.1f%%",
+                entry.getKey().step(),
+                entry.getKey().name(),
+                invocations,
+                nanos / 1e6,
+                invocations == 0 ? 0.0 : nanos / 1e3 / invocations,
+                stepNanos == 0 ? 0.0 : nanos * 100.0 / stepNanos);
+    }
+}
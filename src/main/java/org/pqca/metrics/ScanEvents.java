@@ -0,0 +1,135 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder events of the scan phases. They are cheap when no recording is running
+ * ({@link Event#shouldCommit()} is checked before attributes are computed), so production runs can
+ * be profiled by starting a recording with {@code -XX:StartFlightRecording} or {@code
+ * CBOMKIT_JFR}, see {@link FlightRecording}.
+ */
+public final class ScanEvents {
+    private static final String CATEGORY = "CBOMkit";
+
+    private ScanEvents() {
+        // nothing
+    }
+
+    @Name("org.pqca.PackageScan")
+    @Label("Package Scan")
+    @Category({CATEGORY, "Scan"})
+    public static final class PackageScan extends Event {
+        @Label("Language")
+        public String language;
+
+        @Label("Package")
+        public String path;
+
+        @Label("Files")
+        public int files;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        @Label("Findings")
+        @Description("Components in the package CBOM")
+        public int findings;
+    }
+
+    @Name("org.pqca.ModuleScan")
+    @Label("Module Scan")
+    @Category({CATEGORY, "Scan"})
+    public static final class ModuleScan extends Event {
+        @Label("Module")
+        public String module;
+
+        @Label("Files")
+        public int files;
+
+        @Label("Findings")
+        public int findings;
+    }
+
+    @Name("org.pqca.FileParse")
+    @Label("File Parse")
+    @Category({CATEGORY, "File"})
+    public static final class FileParse extends Event {
+        @Label("File")
+        public String path;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+    }
+
+    @Name("org.pqca.FileVisit")
+    @Label("File Visit")
+    @Category({CATEGORY, "File"})
+    @Description("Visit of a parsed file by the detection rules")
+    public static final class FileVisit extends Event {
+        @Label("File")
+        public String path;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        @Label("Findings")
+        public int findings;
+    }
+
+    @Name("org.pqca.Translation")
+    @Label("Translation")
+    @Category({CATEGORY, "Finding"})
+    @Description("Translation of a detection into CBOM nodes")
+    public static final class Translation extends Event {
+        @Label("Language")
+        public String language;
+
+        @Label("Nodes")
+        public int nodes;
+    }
+
+    @Name("org.pqca.BomWrite")
+    @Label("CBOM Write")
+    @Category({CATEGORY, "Output"})
+    public static final class BomWrite extends Event {
+        @Label("File")
+        public String path;
+
+        @Label("Compression")
+        public String compression;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        @Label("Components")
+        public int components;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.metrics;
+
+import jakarta.annotation.Nonnull;
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Reports JVM startup time and the time until the first source file is scanned, together with
+ * the class data sharing archive in use (if any), so runs with and without the archive can be
+ * compared.
+ */
+public final class StartupMetrics {
+    private static final Logger LOG = LoggerFactory.getLogger(StartupMetrics.class);
+    private static final String SHARED_ARCHIVE_OPTION = "-XX:SharedArchiveFile=";
+
+    private static final AtomicBoolean firstFileSeen = new AtomicBoolean(false);
+
+    private StartupMetrics() {}
+
+    public static void logStartup() {
+        LOG.info(
+                "JVM startup took {} ms (class data sharing archive: {})",
+                ManagementFactory.getRuntimeMXBean().getUptime(),
+                getSharedArchive());
+    }
+
+    public static void fileStarted(@Nonnull InputFile inputFile) {
+        if (firstFileSeen.compareAndSet(false, true)) {
+            LOG.info(
+                    "Time to first file: {} ms since JVM start ({}, class data sharing archive: {})",
+                    ManagementFactory.getRuntimeMXBean().getUptime(),
+                    inputFile,
+                    getSharedArchive());
+        }
+    }
+
+    @Nonnull
+    private static String getSharedArchive() {
+        final RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+        return runtime.getInputArguments().stream()
+                .filter(arg -> arg.startsWith(SHARED_ARCHIVE_OPTION))
+                .map(arg -> arg.substring(SHARED_ARCHIVE_OPTION.length()))
+                .findFirst()
+                .orElse("none");
+    }
+}
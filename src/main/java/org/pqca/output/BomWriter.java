@@ -0,0 +1,184 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.output;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.Nonnull;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import org.cyclonedx.Version;
+import org.cyclonedx.exception.GeneratorException;
+import org.cyclonedx.generators.BomGeneratorFactory;
+import org.cyclonedx.model.Bom;
+import org.pqca.metrics.ScanEvents;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a CBOM as CycloneDX JSON, compressed as configured by {@code CBOMKIT_OUTPUT_COMPRESSION},
+ * logging size and throughput.
+ */
+public final class BomWriter {
+    private static final Logger LOG = LoggerFactory.getLogger(BomWriter.class);
+    private static final String EXTENSION = ".json";
+
+    @Nonnull private final Compression compression;
+
+    public BomWriter(@Nonnull Compression compression) {
+        this.compression = compression;
+    }
+
+    @Nonnull
+    public static BomWriter fromEnvironment() {
+        return new BomWriter(Compression.fromEnvironment());
+    }
+
+    /** Glob matching the CBOM files written by this writer, e.g. {@code cbom*.json.gz}. */
+    @Nonnull
+    public String getFilePattern() {
+        return "cbom*" + EXTENSION + compression.getExtension();
+    }
+
+    /** Name of the file written for the given base name. */
+    @Nonnull
+    public String getFileName(@Nonnull String baseName) {
+        return baseName + EXTENSION + compression.getExtension();
+    }
+
+    /**
+     * Writes the CBOM to {@code <outputDir>/<baseName>.json}, compressed while serializing.
+     *
+     * @param baseName file name without extension, e.g. {@code cbom}
+     */
+    public void write(@Nonnull Bom bom, @Nonnull File outputDir, @Nonnull String baseName)
+            throws IOException, GeneratorException {
+        final ObjectMapper mapper =
+                BomGeneratorFactory.createJson(Version.VERSION_16, bom).getMapper();
+        write(
+                new File(outputDir, getFileName(baseName)),
+                Optional.ofNullable(bom.getComponents()).map(List::size).orElse(0),
+                out -> mapper.writerWithDefaultPrettyPrinter().writeValue(out, bom));
+    }
+
+    /**
+     * Writes the consolidated CBOM of the given package CBOMs like {@link #write(Bom, File,
+     * String)}, streaming the components of one package at a time from its compact store instead
+     * of materializing all of them.
+     *
+     * @param header the consolidated CBOM without components and dependencies
+     */
+    public void write(
+            @Nonnull Bom header,
+            @Nonnull List<CompactBom> packageBoms,
+            @Nonnull File outputDir,
+            @Nonnull String baseName)
+            throws IOException, GeneratorException {
+        final ObjectMapper mapper =
+                BomGeneratorFactory.createJson(Version.VERSION_16, header).getMapper();
+        write(
+                new File(outputDir, getFileName(baseName)),
+                packageBoms.stream().mapToInt(CompactBom::getComponentCount).sum(),
+                out -> {
+                    try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+                        generator.useDefaultPrettyPrinter();
+                        writeConsolidated(generator, mapper, header, packageBoms);
+                    }
+                });
+    }
+
+    private static void writeConsolidated(
+            @Nonnull JsonGenerator generator,
+            @Nonnull ObjectMapper mapper,
+            @Nonnull Bom header,
+            @Nonnull List<CompactBom> packageBoms)
+            throws IOException {
+        generator.writeStartObject();
+        final Iterator<Map.Entry<String, JsonNode>> fields = mapper.valueToTree(header).fields();
+        while (fields.hasNext()) {
+            final Map.Entry<String, JsonNode> field = fields.next();
+            if (!"components".equals(field.getKey()) && !"dependencies".equals(field.getKey())) {
+                generator.writeFieldName(field.getKey());
+                mapper.writeValue(generator, field.getValue());
+            }
+        }
+        generator.writeFieldName("components");
+        generator.writeStartArray();
+        for (CompactBom packageBom : packageBoms) {
+            packageBom.writeComponents(generator, mapper);
+        }
+        generator.writeEndArray();
+        generator.writeFieldName("dependencies");
+        generator.writeStartArray();
+        for (CompactBom packageBom : packageBoms) {
+            packageBom.writeDependencies(generator);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    /**
+     * Serializes straight into the compressing stream, so that the uncompressed document is never
+     * held in memory, and logs size and throughput.
+     */
+    private void write(@Nonnull File cbomFile, int components, @Nonnull JsonWriter jsonWriter)
+            throws IOException {
+        final ScanEvents.BomWrite event = new ScanEvents.BomWrite();
+        final long start = System.nanoTime();
+        event.begin();
+        try (OutputStream out = open(cbomFile)) {
+            jsonWriter.write(out);
+        }
+        event.end();
+        final long nanos = Math.max(1, System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.path = cbomFile.toString();
+            event.compression = compression.name();
+            event.bytes = cbomFile.length();
+            event.components = components;
+            event.commit();
+        }
+        LOG.info(
+                "Wrote {} ({} bytes in {} ms, {} MB/s)",
+                cbomFile,
+                cbomFile.length(),
+                nanos / 1_000_000,
+                String.format(Locale.ROOT, "%.1f", cbomFile.length() * 1e3 / nanos));
+    }
+
+    @FunctionalInterface
+    private interface JsonWriter {
+        void write(@Nonnull OutputStream out) throws IOException;
+    }
+
+    @Nonnull
+    private OutputStream open(@Nonnull File cbomFile) throws IOException {
+        return compression.compress(new BufferedOutputStream(new FileOutputStream(cbomFile)));
+    }
+}
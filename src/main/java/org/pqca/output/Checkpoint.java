@@ -0,0 +1,354 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.output;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.cyclonedx.Version;
+import org.cyclonedx.exception.GeneratorException;
+import org.cyclonedx.exception.ParseException;
+import org.cyclonedx.generators.BomGeneratorFactory;
+import org.cyclonedx.model.Bom;
+import org.cyclonedx.parsers.JsonParser;
+import org.pqca.packages.PackageWorkload;
+import org.pqca.scanning.ScanWatchdog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Records completed packages in a manifest ({@code .cbomkit-checkpoint.json}) next to the package
+ * CBOMs, keyed by language, package path and a SHA-256 fingerprint of everything the scan of the
+ * package depends on, see {@link #fingerprint}. A rerun restores the findings of unchanged
+ * packages from their existing CBOM instead of scanning them again, together with the files the
+ * scan abandoned. The root package has no CBOM of its own; its findings are kept in a separate
+ * checkpoint file.
+ */
+public final class Checkpoint {
+    private static final Logger LOG = LoggerFactory.getLogger(Checkpoint.class);
+    private static final String MANIFEST_FILE_NAME = ".cbomkit-checkpoint.json";
+    private static final int VERSION = 2;
+    private static final List<String> BUILD_FILE_NAMES =
+            List.of(
+                    "pom.xml",
+                    "build.gradle",
+                    "build.gradle.kts",
+                    "settings.gradle",
+                    "settings.gradle.kts",
+                    "gradle.properties",
+                    "pyproject.toml",
+                    "setup.cfg",
+                    "setup.py",
+                    "requirements.txt");
+    // settings changing which files are scanned, or the findings in them
+    private static final List<String> SCAN_SETTINGS =
+            List.of(
+                    "CBOMKIT_GENERATED_FILES",
+                    "CBOMKIT_MAX_FILE_SIZE",
+                    "CBOMKIT_JAVA_CLASSPATH",
+                    "CBOMKIT_FILE_TIMEOUT",
+                    "CBOMKIT_FILE_STACK_SIZE",
+                    "CBOMKIT_BASELINE_CBOM");
+
+    /** A file abandoned by the scan watchdog, the path relative to the project directory. */
+    public record Abandoned(@Nonnull String path, @Nonnull String reason, long elapsedMillis) {}
+
+    public record Entry(
+            @Nonnull String language,
+            @Nonnull String path,
+            @Nonnull String fingerprint,
+            @Nonnull String cbom,
+            @Nonnull List<Abandoned> abandoned) {}
+
+    /**
+     * Findings of a restored package and the files abandoned by its scan.
+     *
+     * @param copy second copy of the findings if requested, e.g. to derive the delta CBOM from
+     */
+    public record Restored(
+            @Nonnull Bom bom,
+            @Nullable Bom copy,
+            @Nonnull List<ScanWatchdog.AbandonedFile> abandonedFiles) {}
+
+    public record Manifest(int version, @Nonnull List<Entry> packages) {}
+
+    @Nonnull private final File outputDir;
+    @Nonnull private final File projectDirectory;
+    @Nonnull private final ObjectMapper mapper =
+            new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    @Nonnull private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    private Checkpoint(@Nonnull File outputDir, @Nonnull File projectDirectory) {
+        this.outputDir = outputDir;
+        this.projectDirectory = projectDirectory;
+        load();
+    }
+
+    /**
+     * Creates the checkpoint if enabled with {@code CBOMKIT_CHECKPOINT=true}. Checkpointing needs
+     * the package CBOM files, which are not written when findings are only streamed.
+     */
+    @Nullable
+    public static Checkpoint fromEnvironment(
+            @Nonnull File outputDir, @Nonnull File projectDirectory) {
+        if (!Boolean.parseBoolean(System.getenv("CBOMKIT_CHECKPOINT"))) {
+            return null;
+        }
+        if (FindingsStream.getInstance().isStreamOnly()) {
+            LOG.warn("Checkpointing needs cbom files, disabled");
+            return null;
+        }
+        return new Checkpoint(outputDir, projectDirectory);
+    }
+
+    private void load() {
+        final File manifestFile = new File(outputDir, MANIFEST_FILE_NAME);
+        if (!manifestFile.exists()) {
+            return;
+        }
+        try {
+            final Manifest manifest = mapper.readValue(manifestFile, Manifest.class);
+            if (manifest.version() != VERSION) {
+                LOG.warn("Ignoring checkpoint {} of version {}", manifestFile, manifest.version());
+                return;
+            }
+            for (Entry entry : manifest.packages()) {
+                entries.put(key(entry.language(), entry.path()), entry);
+            }
+            LOG.info("Loaded checkpoint {} with {} packages", manifestFile, entries.size());
+        } catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
+    @Nonnull
+    private static String key(@Nonnull String language, @Nonnull String path) {
+        return language + ":" + path;
+    }
+
+    @Nonnull
+    private String getPath(@Nonnull PackageWorkload workload) {
+        return projectDirectory
+                .toPath()
+                .relativize(workload.packageMetadata().packageDir().toPath())
+                .toString();
+    }
+
+    /**
+     * SHA-256 over the relative path and contents of every source file and build file of the
+     * package, the name, size and mtime of every jar of its classpath, the scan settings of the
+     * environment and the contents of the baseline CBOM.
+     *
+     * @param libraries classpath of a Java package, jars and directories of jars separated by
+     *     commas, or {@code null}
+     */
+    @Nonnull
+    public String fingerprint(@Nonnull PackageWorkload workload, @Nullable String libraries)
+            throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final List<InputFile> files = new ArrayList<>();
+        workload.modules().forEach(module -> files.addAll(module.inputFileList()));
+        files.sort(Comparator.comparing(InputFile::uri));
+
+        final byte[] buffer = new byte[64 * 1024];
+        for (InputFile file : files) {
+            final Path path = file.path();
+            update(digest, projectDirectory.toPath().relativize(path).toString());
+            update(digest, path, buffer);
+        }
+        final File packageDir = workload.packageMetadata().packageDir();
+        for (String buildFileName : BUILD_FILE_NAMES) {
+            final File buildFile = new File(packageDir, buildFileName);
+            if (buildFile.isFile()) {
+                update(digest, buildFileName);
+                update(digest, buildFile.toPath(), buffer);
+            }
+        }
+        if (libraries != null) {
+            for (String library : libraries.split(",")) {
+                final File libraryFile = new File(library);
+                final File[] jars =
+                        libraryFile.isDirectory()
+                                ? libraryFile.listFiles()
+                                : new File[] {libraryFile};
+                if (jars == null) {
+                    continue;
+                }
+                Arrays.sort(jars);
+                for (File jar : jars) {
+                    update(digest, jar.getPath() + ":" + jar.length() + ":" + jar.lastModified());
+                }
+            }
+        }
+        for (String setting : SCAN_SETTINGS) {
+            update(digest, setting + "=" + System.getenv(setting));
+        }
+        final String baselineFile = System.getenv("CBOMKIT_BASELINE_CBOM");
+        if (baselineFile != null && new File(baselineFile).isFile()) {
+            update(digest, Path.of(baselineFile), buffer);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(@Nonnull MessageDigest digest, @Nonnull String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static void update(
+            @Nonnull MessageDigest digest, @Nonnull Path path, @Nonnull byte[] buffer)
+            throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    /**
+     * Returns the findings of the package from its checkpointed CBOM, or {@code null} if the
+     * package has to be scanned.
+     *
+     * @param withCopy whether to read a second copy of the findings
+     */
+    @Nullable
+    public synchronized Restored restore(
+            @Nonnull String language,
+            @Nonnull PackageWorkload workload,
+            @Nonnull String fingerprint,
+            boolean withCopy) {
+        final Entry entry = entries.get(key(language, getPath(workload)));
+        if (entry == null || !entry.fingerprint().equals(fingerprint)) {
+            return null;
+        }
+        final File cbomFile = new File(outputDir, entry.cbom());
+        if (!cbomFile.exists()) {
+            return null;
+        }
+        try {
+            final Bom bom = read(cbomFile);
+            final Bom copy = withCopy ? read(cbomFile) : null;
+            LOG.info("Restored {} package {} from checkpoint {}", language, entry.path(), cbomFile);
+            final List<ScanWatchdog.AbandonedFile> abandonedFiles = new ArrayList<>();
+            for (Abandoned abandoned : entry.abandoned()) {
+                abandonedFiles.add(
+                        new ScanWatchdog.AbandonedFile(
+                                projectDirectory.toPath().resolve(abandoned.path()),
+                                abandoned.reason(),
+                                abandoned.elapsedMillis()));
+            }
+            return new Restored(bom, copy, abandonedFiles);
+        } catch (IOException | ParseException e) {
+            LOG.error(e.getMessage(), e);
+            return null;
+        }
+    }
+
+    @Nonnull
+    private static Bom read(@Nonnull File cbomFile) throws IOException, ParseException {
+        final Compression compression = Compression.fromFileName(cbomFile.getName());
+        try (InputStream in =
+                compression.decompress(new BufferedInputStream(new FileInputStream(cbomFile)))) {
+            return new JsonParser().parse(in);
+        }
+    }
+
+    /**
+     * Records a completed package.
+     *
+     * @param cbomFileName the package CBOM written to the output dir, or {@code null} if none was
+     *     written (root package), in which case the findings are written to a checkpoint file
+     * @param abandonedFiles files abandoned by the scan of the package, restored with it
+     */
+    public synchronized void completed(
+            @Nonnull String language,
+            @Nonnull PackageWorkload workload,
+            @Nonnull String fingerprint,
+            @Nonnull Bom bom,
+            @Nullable String cbomFileName,
+            @Nonnull List<ScanWatchdog.AbandonedFile> abandonedFiles) {
+        final String path = getPath(workload);
+        final List<Abandoned> abandoned = new ArrayList<>();
+        for (ScanWatchdog.AbandonedFile abandonedFile : abandonedFiles) {
+            abandoned.add(
+                    new Abandoned(
+                            projectDirectory.toPath().relativize(abandonedFile.file()).toString(),
+                            abandonedFile.reason(),
+                            abandonedFile.elapsedMillis()));
+        }
+        String cbom = cbomFileName;
+        try {
+            if (cbom == null) {
+                cbom =
+                        ".cbomkit-checkpoint-"
+                                + language
+                                + "-"
+                                + (path.isEmpty() ? "root" : path.replace('/', '.'))
+                                + ".json";
+                Files.writeString(
+                        new File(outputDir, cbom).toPath(),
+                        BomGeneratorFactory.createJson(Version.VERSION_16, bom).toJsonString(),
+                        StandardCharsets.UTF_8);
+            }
+            entries.put(
+                    key(language, path), new Entry(language, path, fingerprint, cbom, abandoned));
+            writeManifest();
+        } catch (IOException | GeneratorException e) {
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
+    private void writeManifest() throws IOException {
+        final File manifestFile = new File(outputDir, MANIFEST_FILE_NAME);
+        final File tmpFile = new File(outputDir, MANIFEST_FILE_NAME + ".tmp");
+        mapper.writeValue(tmpFile, new Manifest(VERSION, List.copyOf(entries.values())));
+        Files.move(
+                tmpFile.toPath(),
+                manifestFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
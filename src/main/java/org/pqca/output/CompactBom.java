@@ -0,0 +1,273 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.output;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.File;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.cyclonedx.Version;
+import org.cyclonedx.exception.ParseException;
+import org.cyclonedx.generators.BomGeneratorFactory;
+import org.cyclonedx.model.Bom;
+import org.cyclonedx.model.Component;
+import org.cyclonedx.model.Dependency;
+import org.cyclonedx.model.Evidence;
+import org.cyclonedx.model.component.evidence.Occurrence;
+import org.cyclonedx.parsers.JsonParser;
+
+/**
+ * A CBOM whose occurrences are stored in primitive arrays instead of CycloneDX {@link Occurrence}
+ * objects. Locations and other occurrence strings are interned in a {@link StringPool} shared by
+ * all packages. The components are kept without their occurrences, which are only materialized
+ * one component at a time while {@link #writeComponents writing} the CBOM.
+ *
+ * <p>This bounds the memory of the package CBOMs retained between the end of their scan and the
+ * consolidation only. While a package is scanned, its findings are held by the plugin's {@code
+ * CBOMOutputFile} with full occurrences and absolute locations, so the peak heap of a package
+ * scan is unchanged.
+ *
+ * <p>Under heap pressure, a retained CBOM can be {@link #spill spilled} to a file and dropped from
+ * the heap; {@link #writeComponents} then reads it back.
+ */
+public final class CompactBom {
+    private static final int NO_NUMBER = Integer.MIN_VALUE;
+
+    private record Contents(
+            @Nonnull List<Component> components,
+            // occurrences of component i are at [occurrenceStart[i], occurrenceStart[i + 1])
+            @Nonnull int[] occurrenceStart,
+            @Nonnull int[] locations,
+            @Nonnull int[] lines,
+            @Nonnull int[] offsets,
+            @Nonnull int[] symbols,
+            @Nonnull int[] additionalContexts) {}
+
+    @Nonnull private final StringPool strings;
+    // kept on spilling, they hold references only
+    @Nonnull private final List<Dependency> dependencies;
+    private final int componentCount;
+    private final int occurrenceCount;
+    // null once spilled
+    @Nullable private Contents contents;
+    @Nullable private File spillFile;
+
+    private CompactBom(
+            @Nonnull StringPool strings,
+            @Nonnull List<Dependency> dependencies,
+            @Nonnull Contents contents) {
+        this.strings = strings;
+        this.dependencies = dependencies;
+        this.contents = contents;
+        this.componentCount = contents.components().size();
+        this.occurrenceCount = contents.locations().length;
+    }
+
+    /**
+     * Moves the occurrences of the given CBOM into a compact representation. The components of
+     * {@code bom} are stripped of their occurrences, so the CBOM must not be used afterwards.
+     */
+    @Nonnull
+    public static CompactBom of(@Nonnull Bom bom, @Nonnull StringPool strings) {
+        final List<Component> components =
+                bom.getComponents() == null ? List.of() : bom.getComponents();
+        final List<Dependency> dependencies =
+                bom.getDependencies() == null ? List.of() : bom.getDependencies();
+
+        int count = 0;
+        for (Component component : components) {
+            count += getOccurrences(component).size();
+        }
+        final int[] occurrenceStart = new int[components.size() + 1];
+        final int[] locations = new int[count];
+        final int[] lines = new int[count];
+        final int[] offsets = new int[count];
+        final int[] symbols = new int[count];
+        final int[] additionalContexts = new int[count];
+
+        int o = 0;
+        for (int c = 0; c < components.size(); c++) {
+            occurrenceStart[c] = o;
+            final Component component = components.get(c);
+            for (Occurrence occurrence : getOccurrences(component)) {
+                locations[o] = strings.intern(occurrence.getLocation());
+                lines[o] = occurrence.getLine() == null ? NO_NUMBER : occurrence.getLine();
+                offsets[o] = occurrence.getOffset() == null ? NO_NUMBER : occurrence.getOffset();
+                symbols[o] = strings.intern(occurrence.getSymbol());
+                additionalContexts[o] = strings.intern(occurrence.getAdditionalContext());
+                o++;
+            }
+            if (component.getEvidence() != null) {
+                component.getEvidence().setOccurrences(null);
+            }
+        }
+        occurrenceStart[components.size()] = o;
+
+        return new CompactBom(
+                strings,
+                new ArrayList<>(dependencies),
+                new Contents(
+                        new ArrayList<>(components),
+                        occurrenceStart,
+                        locations,
+                        lines,
+                        offsets,
+                        symbols,
+                        additionalContexts));
+    }
+
+    @Nonnull
+    private static List<Occurrence> getOccurrences(@Nonnull Component component) {
+        final Evidence evidence = component.getEvidence();
+        if (evidence == null || evidence.getOccurrences() == null) {
+            return List.of();
+        }
+        return evidence.getOccurrences();
+    }
+
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    public int getOccurrenceCount() {
+        return occurrenceCount;
+    }
+
+    /**
+     * Writes the components of the CBOM as elements of the current JSON array. The occurrences of
+     * one component at a time are materialized while it is serialized, and dropped again, so the
+     * retained components stay without occurrences.
+     *
+     * @param mapper the mapper of the CycloneDX JSON generator, configured with its serializers
+     */
+    public synchronized void writeComponents(
+            @Nonnull JsonGenerator generator, @Nonnull ObjectMapper mapper) throws IOException {
+        if (contents == null) {
+            for (Component component : readSpillFile().getComponents()) {
+                mapper.writeValue(generator, component);
+            }
+            return;
+        }
+        final List<Component> components = contents.components();
+        for (int c = 0; c < components.size(); c++) {
+            final Component component = components.get(c);
+            final Evidence evidence = component.getEvidence();
+            if (evidence == null) {
+                mapper.writeValue(generator, component);
+                continue;
+            }
+            evidence.setOccurrences(createOccurrences(c));
+            try {
+                mapper.writeValue(generator, component);
+            } finally {
+                evidence.setOccurrences(null);
+            }
+        }
+    }
+
+    /** Writes the dependencies of the CBOM as elements of the current JSON array. */
+    public void writeDependencies(@Nonnull JsonGenerator generator)
+            throws IOException {
+        for (Dependency dependency : dependencies) {
+            generator.writeStartObject();
+            generator.writeStringField("ref", dependency.getRef());
+            if (dependency.getDependencies() != null) {
+                generator.writeFieldName("dependsOn");
+                generator.writeStartArray();
+                for (Dependency dependsOn : dependency.getDependencies()) {
+                    generator.writeString(dependsOn.getRef());
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Writes the components of the CBOM to a file in the given directory and drops them from the
+     * heap. They are streamed as by {@link #writeComponents}. The file is deleted when the JVM
+     * exits.
+     */
+    public synchronized void spill(@Nonnull File directory) throws IOException {
+        if (contents == null) {
+            return;
+        }
+        final ObjectMapper mapper =
+                BomGeneratorFactory.createJson(Version.VERSION_16, new Bom()).getMapper();
+        final File file = File.createTempFile("cbom-spill-", ".json", directory);
+        file.deleteOnExit();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+                JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("bomFormat", "CycloneDX");
+            generator.writeStringField("specVersion", Version.VERSION_16.getVersionString());
+            generator.writeFieldName("components");
+            generator.writeStartArray();
+            writeComponents(generator, mapper);
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        spillFile = file;
+        contents = null;
+    }
+
+    @Nonnull
+    private List<Occurrence> createOccurrences(int component) {
+        final int[] occurrenceStart = contents.occurrenceStart();
+        final List<Occurrence> occurrences =
+                new ArrayList<>(occurrenceStart[component + 1] - occurrenceStart[component]);
+        for (int o = occurrenceStart[component]; o < occurrenceStart[component + 1]; o++) {
+            final Occurrence occurrence = new Occurrence();
+            occurrence.setLocation(strings.get(contents.locations()[o]));
+            occurrence.setLine(toInteger(contents.lines()[o]));
+            occurrence.setOffset(toInteger(contents.offsets()[o]));
+            occurrence.setSymbol(strings.get(contents.symbols()[o]));
+            occurrence.setAdditionalContext(strings.get(contents.additionalContexts()[o]));
+            occurrences.add(occurrence);
+        }
+        return occurrences;
+    }
+
+    @Nonnull
+    private Bom readSpillFile() {
+        try {
+            final Bom bom = new JsonParser().parse(spillFile);
+            if (bom.getComponents() == null) {
+                bom.setComponents(new ArrayList<>());
+            }
+            return bom;
+        } catch (ParseException e) {
+            // the findings would be missing from the consolidated CBOM
+            throw new IllegalStateException("Failed to read spilled cbom " + spillFile, e);
+        }
+    }
+
+    @Nullable
+    private static Integer toInteger(int number) {
+        return number == NO_NUMBER ? null : number;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.output;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import jakarta.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/** Compression of the written CBOM files. */
+public enum Compression {
+    NONE(""),
+    GZIP(".gz"),
+    ZSTD(".zst");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Nonnull private final String extension;
+
+    Compression(@Nonnull String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Reads {@code CBOMKIT_OUTPUT_COMPRESSION}: {@code none} (default), {@code gzip} or {@code
+     * zstd}.
+     */
+    @Nonnull
+    public static Compression fromEnvironment() {
+        return Optional.ofNullable(System.getenv("CBOMKIT_OUTPUT_COMPRESSION"))
+                .map(c -> Compression.valueOf(c.trim().toUpperCase(Locale.ROOT)))
+                .orElse(NONE);
+    }
+
+    /** Detects the compression of a file by its extension. */
+    @Nonnull
+    public static Compression fromFileName(@Nonnull String fileName) {
+        if (fileName.endsWith(GZIP.extension)) {
+            return GZIP;
+        }
+        if (fileName.endsWith(ZSTD.extension)) {
+            return ZSTD;
+        }
+        return NONE;
+    }
+
+    /** Extension appended to the format extension, e.g. {@code .gz}. */
+    @Nonnull
+    public String getExtension() {
+        return extension;
+    }
+
+    @Nonnull
+    public OutputStream compress(@Nonnull OutputStream out) throws IOException {
+        return switch (this) {
+            case NONE -> out;
+            case GZIP -> new GZIPOutputStream(out, BUFFER_SIZE);
+            case ZSTD -> new ZstdOutputStream(out);
+        };
+    }
+
+    @Nonnull
+    public InputStream decompress(@Nonnull InputStream in) throws IOException {
+        return switch (this) {
+            case NONE -> in;
+            case GZIP -> new GZIPInputStream(in, BUFFER_SIZE);
+            case ZSTD -> new ZstdInputStream(in);
+        };
+    }
+}
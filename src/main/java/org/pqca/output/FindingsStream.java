@@ -0,0 +1,204 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.output;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.cyclonedx.Version;
+import org.cyclonedx.generators.BomGeneratorFactory;
+import org.cyclonedx.model.Bom;
+import org.cyclonedx.model.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appends every finding, as soon as it is reported, to the newline delimited JSON file given by
+ * {@code CBOMKIT_FINDINGS_STREAM}. Each line is an object with the package directory relative to
+ * the workspace ({@code package}) and the CycloneDX component of the finding ({@code component}),
+ * whose occurrence locations are relative to the package like in the package CBOM. In a batch
+ * scan, the package directory is relative to the checkout of the repository, which is named by an
+ * additional {@code repository} member.
+ *
+ * <p>With {@code CBOMKIT_FINDINGS_STREAM_ONLY=true}, findings are not collected for the CBOM files,
+ * which are then not written.
+ */
+public final class FindingsStream {
+    private static final Logger LOG = LoggerFactory.getLogger(FindingsStream.class);
+
+    private static final FindingsStream INSTANCE = fromEnvironment();
+
+    @Nullable private final Writer writer;
+    @Nullable private final File workspace;
+    private final boolean streamOnly;
+    // checkouts of the repositories being scanned in a batch scan, by their name
+    @Nonnull private final Map<Path, String> checkouts = new ConcurrentHashMap<>();
+    // mapper of the CycloneDX JSON generator, configured with its serializers
+    @Nonnull
+    private final ObjectMapper mapper =
+            BomGeneratorFactory.createJson(Version.VERSION_16, new Bom()).getMapper();
+
+    // writes one value to the stream, which stays open and is flushed once per finding
+    @Nonnull
+    private final ObjectWriter lineWriter =
+            mapper.writer()
+                    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    private FindingsStream(@Nullable Writer writer, @Nullable File workspace, boolean streamOnly) {
+        this.writer = writer;
+        this.workspace = workspace;
+        this.streamOnly = streamOnly;
+    }
+
+    @Nonnull
+    public static FindingsStream getInstance() {
+        return INSTANCE;
+    }
+
+    @Nonnull
+    private static FindingsStream fromEnvironment() {
+        final String findingsFile = System.getenv("CBOMKIT_FINDINGS_STREAM");
+        if (findingsFile == null) {
+            return new FindingsStream(null, null, false);
+        }
+        final File workspace =
+                Optional.ofNullable(System.getenv("GITHUB_WORKSPACE")).map(File::new).orElse(null);
+        final boolean streamOnly =
+                Boolean.parseBoolean(System.getenv("CBOMKIT_FINDINGS_STREAM_ONLY"));
+        try {
+            final Writer writer =
+                    new BufferedWriter(
+                            new OutputStreamWriter(
+                                    new FileOutputStream(findingsFile), StandardCharsets.UTF_8));
+            LOG.info("Streaming findings to {}", findingsFile);
+            return new FindingsStream(writer, workspace, streamOnly);
+        } catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+            return new FindingsStream(null, null, false);
+        }
+    }
+
+    public boolean isEnabled() {
+        return writer != null;
+    }
+
+    /** Whether findings are only streamed, and not collected into CBOM files. */
+    public boolean isStreamOnly() {
+        return streamOnly;
+    }
+
+    /** Relativizes the packages of a checkout scanned in a batch scan to the checkout. */
+    public void addCheckout(@Nonnull File checkout, @Nonnull String repositoryName) {
+        checkouts.put(checkout.getAbsoluteFile().toPath(), repositoryName);
+    }
+
+    public void removeCheckout(@Nonnull File checkout) {
+        checkouts.remove(checkout.getAbsoluteFile().toPath());
+    }
+
+    /**
+     * Appends the components of a finding and flushes them, so readers see complete lines. The
+     * components are serialized straight into the stream.
+     */
+    public void write(@Nonnull File packageDir, @Nonnull List<Component> components) {
+        if (writer == null || components.isEmpty()) {
+            return;
+        }
+        writeLines(packageDir, components);
+    }
+
+    /** Serializes components to a JSON array as written to the stream. */
+    @Nonnull
+    public JsonNode toJson(@Nonnull List<Component> components) {
+        return mapper.valueToTree(components);
+    }
+
+    /** Appends the components of a finding, given as a JSON array, and flushes them. */
+    public void write(@Nonnull File packageDir, @Nonnull JsonNode componentNodes) {
+        if (writer == null) {
+            return;
+        }
+        writeLines(packageDir, componentNodes);
+    }
+
+    private void writeLines(@Nonnull File packageDir, @Nonnull Iterable<?> components) {
+        try {
+            final String packagePrefix = getPackagePrefix(packageDir);
+            synchronized (writer) {
+                for (Object component : components) {
+                    writer.write(packagePrefix);
+                    writer.write(",\"component\":");
+                    lineWriter.writeValue(writer, component);
+                    writer.write("}\n");
+                }
+                writer.flush();
+            }
+        } catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
+    /** Opening of a line up to the {@code package} member, with the package and repository. */
+    @Nonnull
+    private String getPackagePrefix(@Nonnull File packageDir) throws IOException {
+        final Path packagePath = packageDir.getAbsoluteFile().toPath();
+        for (Map.Entry<Path, String> checkout : checkouts.entrySet()) {
+            if (packagePath.startsWith(checkout.getKey())) {
+                return "{\"repository\":"
+                        + mapper.writeValueAsString(checkout.getValue())
+                        + ",\"package\":"
+                        + mapper.writeValueAsString(
+                                checkout.getKey().relativize(packagePath).toString());
+            }
+        }
+        return "{\"package\":"
+                + mapper.writeValueAsString(
+                        workspace == null
+                                ? packageDir.toString()
+                                : workspace.toPath().relativize(packageDir.toPath()).toString());
+    }
+
+    public void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                LOG.error(e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.output;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Interns strings to dense indexes, so repeated strings are stored once and referenced by int. */
+public final class StringPool {
+    public static final int NULL = -1;
+
+    @Nonnull private final Map<String, Integer> indexes = new HashMap<>();
+    @Nonnull private final List<String> strings = new ArrayList<>();
+
+    public synchronized int intern(@Nullable String string) {
+        if (string == null) {
+            return NULL;
+        }
+        return indexes.computeIfAbsent(
+                string,
+                s -> {
+                    strings.add(s);
+                    return strings.size() - 1;
+                });
+    }
+
+    @Nullable
+    public synchronized String get(int index) {
+        return index == NULL ? null : strings.get(index);
+    }
+
+    public synchronized int size() {
+        return strings.size();
+    }
+}
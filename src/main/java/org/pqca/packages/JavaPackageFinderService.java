@@ -20,13 +20,29 @@
 package org.pqca.packages;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import java.io.File;
 import java.nio.file.Path;
+import org.pqca.indexing.DirectoryWalker;
+import org.pqca.indexing.IndexSnapshot;
 
 public class JavaPackageFinderService extends PackageFinderService {
 
     public JavaPackageFinderService(@Nonnull File rootFile) throws IllegalArgumentException {
-        super(rootFile);
+        this(rootFile, null);
+    }
+
+    public JavaPackageFinderService(@Nonnull File rootFile, @Nullable IndexSnapshot snapshot)
+            throws IllegalArgumentException {
+        this(rootFile, snapshot, null);
+    }
+
+    public JavaPackageFinderService(
+            @Nonnull File rootFile,
+            @Nullable IndexSnapshot snapshot,
+            @Nullable DirectoryWalker directoryWalker)
+            throws IllegalArgumentException {
+        super(rootFile, snapshot, directoryWalker);
     }
 
     @Override
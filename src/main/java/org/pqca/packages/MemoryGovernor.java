@@ -0,0 +1,199 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.packages;
+
+import jakarta.annotation.Nonnull;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.management.NotificationEmitter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Throttles package admission on heap pressure. Collection usage thresholds are set on the heap
+ * pools that support them; when a pool exceeds {@code CBOMKIT_MEMORY_HIGH} (fraction of its
+ * maximum, default {@code 0.85}) after a collection, the registered flush hooks run and no further
+ * package is admitted while another one is still running, so the concurrency drains down to a
+ * single package. Admission resumes once the usage after collection drops below {@code
+ * CBOMKIT_MEMORY_LOW} (default {@code 0.6}); this is checked on every notification, on admission
+ * and whenever a package finishes.
+ *
+ * <p>The flush hooks run on every threshold notification, on a worker thread rather than on the
+ * notification thread. Notifications arriving while the hooks still run are coalesced into one
+ * further run.
+ *
+ * <p>The flush hooks drop the cached classpaths and spill the package CBOMs retained for the
+ * consolidation to disk. With a parallelism of 1, packages already run one at a time, so the hooks
+ * are the only relief; the heap of the package being scanned is not reduced.
+ */
+public final class MemoryGovernor {
+    private static final Logger LOG = LoggerFactory.getLogger(MemoryGovernor.class);
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+
+    private final double low;
+    @Nonnull private final List<MemoryPoolMXBean> pools;
+    @Nonnull private final List<Runnable> flushHooks = new CopyOnWriteArrayList<>();
+    @Nonnull private final AtomicBoolean flushPending = new AtomicBoolean();
+
+    @Nonnull
+    private final ExecutorService flushExecutor =
+            Executors.newSingleThreadExecutor(
+                    runnable -> {
+                        final Thread thread = new Thread(runnable, "cbomkit-memory-flush");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    private boolean underPressure;
+    private int running;
+
+    public MemoryGovernor(double high, double low) {
+        this.low = low;
+        this.pools =
+                ManagementFactory.getMemoryPoolMXBeans().stream()
+                        .filter(pool -> pool.getType() == MemoryType.HEAP)
+                        .filter(MemoryPoolMXBean::isCollectionUsageThresholdSupported)
+                        .filter(pool -> pool.getUsage().getMax() > 0)
+                        .toList();
+        for (MemoryPoolMXBean pool : pools) {
+            final long threshold = (long) (pool.getUsage().getMax() * high);
+            pool.setCollectionUsageThreshold(threshold);
+        }
+        ((NotificationEmitter) ManagementFactory.getMemoryMXBean())
+                .addNotificationListener(
+                        (notification, handback) -> {
+                            if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(
+                                    notification.getType())) {
+                                pressureDetected();
+                            }
+                        },
+                        null,
+                        null);
+    }
+
+    @Nonnull
+    public static MemoryGovernor fromEnvironment() {
+        final double high =
+                Optional.ofNullable(System.getenv("CBOMKIT_MEMORY_HIGH"))
+                        .map(Double::parseDouble)
+                        .orElse(0.85);
+        final double low =
+                Optional.ofNullable(System.getenv("CBOMKIT_MEMORY_LOW"))
+                        .map(Double::parseDouble)
+                        .orElse(0.6);
+        return new MemoryGovernor(high, low);
+    }
+
+    /** Registers an action releasing buffered memory, run when pressure is detected. */
+    public void addFlushHook(@Nonnull Runnable flushHook) {
+        flushHooks.add(flushHook);
+    }
+
+    public void removeFlushHook(@Nonnull Runnable flushHook) {
+        flushHooks.remove(flushHook);
+    }
+
+    /** Waits until a package may start: always when none runs, otherwise without heap pressure. */
+    public synchronized void acquire() throws InterruptedException {
+        // evaluated first, so that the pressure is also re-checked when no package runs
+        while (isUnderPressure() && running > 0) {
+            wait(POLL_INTERVAL_MILLIS);
+        }
+        running++;
+    }
+
+    public synchronized void release() {
+        running--;
+        isUnderPressure();
+        notifyAll();
+    }
+
+    private void pressureDetected() {
+        synchronized (this) {
+            if (!underPressure) {
+                underPressure = true;
+                LOG.warn(
+                        "Heap usage after collection above threshold, pausing package admission"
+                                + " ({})",
+                        describeUsage());
+            } else {
+                // a pool may have dropped below the low threshold since the last notification
+                isUnderPressure();
+            }
+        }
+        if (flushPending.compareAndSet(false, true)) {
+            flushExecutor.execute(this::runFlushHooks);
+        }
+    }
+
+    private void runFlushHooks() {
+        flushPending.set(false);
+        for (Runnable flushHook : flushHooks) {
+            try {
+                flushHook.run();
+            } catch (RuntimeException e) {
+                LOG.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    private synchronized boolean isUnderPressure() {
+        if (underPressure && pools.stream().allMatch(this::isBelowLow)) {
+            underPressure = false;
+            LOG.info("Heap pressure relieved, resuming package admission ({})", describeUsage());
+            notifyAll();
+        }
+        return underPressure;
+    }
+
+    private boolean isBelowLow(@Nonnull MemoryPoolMXBean pool) {
+        final MemoryUsage usage =
+                Optional.ofNullable(pool.getCollectionUsage()).orElse(pool.getUsage());
+        return usage.getUsed() < usage.getMax() * low;
+    }
+
+    @Nonnull
+    private String describeUsage() {
+        final StringBuilder sb = new StringBuilder();
+        for (MemoryPoolMXBean pool : pools) {
+            final MemoryUsage usage =
+                    Optional.ofNullable(pool.getCollectionUsage()).orElse(pool.getUsage());
+            if (!sb.isEmpty()) {
+                sb.append(", ");
+            }
+            sb.append(pool.getName())
+                    .append(": ")
+                    .append(usage.getUsed() / (1024 * 1024))
+                    .append("/")
+                    .append(usage.getMax() / (1024 * 1024))
+                    .append(" MB");
+        }
+        return sb.toString();
+    }
+}
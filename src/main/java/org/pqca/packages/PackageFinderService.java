@@ -20,13 +20,17 @@
 package org.pqca.packages;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Stream;
+import org.pqca.indexing.DirectoryWalker;
+import org.pqca.indexing.IndexSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,16 +38,30 @@ public abstract class PackageFinderService {
     private static final Logger LOGGER = LoggerFactory.getLogger(PackageFinderService.class);
 
     protected Path root;
+    @Nullable private final IndexSnapshot snapshot;
+    @Nullable private final DirectoryWalker directoryWalker;
 
-    protected PackageFinderService(@Nonnull File rootFile) throws IllegalArgumentException {
+    protected PackageFinderService(
+            @Nonnull File rootFile,
+            @Nullable IndexSnapshot snapshot,
+            @Nullable DirectoryWalker directoryWalker)
+            throws IllegalArgumentException {
         if (!rootFile.isDirectory()) {
             throw new IllegalArgumentException("Path must be a directory!");
         }
         this.root = rootFile.toPath();
+        this.snapshot = snapshot;
+        this.directoryWalker = directoryWalker;
     }
 
     @Nonnull
     public List<PackageMetadata> findPackages() {
+        if (snapshot != null || directoryWalker != null) {
+            // walk the listings of the snapshot or the walker, in the same order as Files.walk
+            final List<Path> buildFiles = new ArrayList<>();
+            collectBuildFiles(this.root.toFile(), buildFiles);
+            return buildFiles.stream().map(this::getMetadata).filter(Objects::nonNull).toList();
+        }
         try (Stream<Path> walk = Files.walk(this.root)) {
             return walk.filter(p -> !Files.isDirectory(p))
                     .filter(this::isBuildFile)
@@ -56,6 +74,23 @@ public abstract class PackageFinderService {
         return Collections.emptyList();
     }
 
+    private void collectBuildFiles(@Nonnull File directory, @Nonnull List<Path> buildFiles) {
+        final File[] files =
+                directoryWalker == null
+                        ? snapshot.listFiles(directory)
+                        : directoryWalker.listFiles(directory);
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (directoryWalker == null ? file.isDirectory() : directoryWalker.isDirectory(file)) {
+                collectBuildFiles(file, buildFiles);
+            } else if (isBuildFile(file.toPath())) {
+                buildFiles.add(file.toPath());
+            }
+        }
+    }
+
     public abstract boolean isBuildFile(@Nonnull Path file);
 
     @Nonnull
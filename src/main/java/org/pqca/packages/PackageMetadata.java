@@ -25,12 +25,12 @@ import java.io.File;
 
 public record PackageMetadata(@Nonnull File packageDir, @Nullable String name) {
 
-    public String getCbomFileName() {
+    /** File name of the package cbom without extension, which depends on the output format. */
+    public String getCbomBaseName() {
         StringBuilder sb = new StringBuilder("cbom");
         if (name != null) {
             sb.append("_" + name.replaceAll("/", "."));
         }
-        sb.append(".json");
         return sb.toString();
     }
 }
@@ -0,0 +1,149 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.packages;
+
+import jakarta.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scans packages largest first (by {@link PackageWorkload#cost()}) on a work-stealing pool, so that
+ * large packages do not end up last and the wall time approaches the total work divided by the
+ * number of threads. The results are returned in the order of the given workloads.
+ */
+public final class PackageScheduler {
+    private static final Logger LOG = LoggerFactory.getLogger(PackageScheduler.class);
+
+    private final int parallelism;
+    @Nonnull private final MemoryGovernor memoryGovernor;
+
+    public PackageScheduler(int parallelism, @Nonnull MemoryGovernor memoryGovernor) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid parallelism " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.memoryGovernor = memoryGovernor;
+    }
+
+    /**
+     * Creates a scheduler with {@code CBOMKIT_PARALLELISM} threads (default {@code 1}); {@code 0}
+     * uses one thread per available processor.
+     */
+    @Nonnull
+    public static PackageScheduler fromEnvironment() {
+        final int parallelism =
+                Optional.ofNullable(System.getenv("CBOMKIT_PARALLELISM"))
+                        .map(Integer::parseInt)
+                        .orElse(1);
+        return new PackageScheduler(
+                parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism,
+                MemoryGovernor.fromEnvironment());
+    }
+
+    @Nonnull
+    public MemoryGovernor getMemoryGovernor() {
+        return memoryGovernor;
+    }
+
+    @Nonnull
+    public <T> List<T> run(
+            @Nonnull List<PackageWorkload> workloads, @Nonnull Function<PackageWorkload, T> task) {
+        final int[] largestFirst =
+                IntStream.range(0, workloads.size())
+                        .boxed()
+                        .sorted(Comparator.comparing(workloads::get, PackageWorkload.LARGEST_FIRST))
+                        .mapToInt(Integer::intValue)
+                        .toArray();
+        final long totalCost = workloads.stream().mapToLong(PackageWorkload::cost).sum();
+        LOG.info(
+                "Scheduling {} packages (estimated cost {}, largest {}) on {} threads",
+                workloads.size(),
+                totalCost,
+                largestFirst.length == 0 ? 0 : workloads.get(largestFirst[0]).cost(),
+                parallelism);
+
+        final Object[] results = new Object[workloads.size()];
+        if (parallelism == 1) {
+            for (int i : largestFirst) {
+                results[i] = admit(task, workloads.get(i));
+            }
+        } else {
+            // async mode: forked tasks are taken and stolen in submission order, i.e. largest first
+            final ForkJoinPool pool =
+                    new ForkJoinPool(
+                            parallelism,
+                            ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+                            null,
+                            true);
+            try {
+                pool.invoke(
+                        new RecursiveTask<Void>() {
+                            @Override
+                            protected Void compute() {
+                                final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+                                for (int i : largestFirst) {
+                                    final PackageWorkload workload = workloads.get(i);
+                                    tasks.add(
+                                            ForkJoinTask.adapt(
+                                                            () -> {
+                                                                results[i] = admit(task, workload);
+                                                            })
+                                                    .fork());
+                                }
+                                tasks.forEach(ForkJoinTask::join);
+                                return null;
+                            }
+                        });
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        final List<T> ordered = (List<T>) Arrays.asList(results);
+        return ordered;
+    }
+
+    /** Runs the task once the memory governor admits another package. */
+    private <T> T admit(
+            @Nonnull Function<PackageWorkload, T> task, @Nonnull PackageWorkload workload) {
+        try {
+            memoryGovernor.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for memory", e);
+        }
+        try {
+            return task.apply(workload);
+        } finally {
+            memoryGovernor.release();
+        }
+    }
+}
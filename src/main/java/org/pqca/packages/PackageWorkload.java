@@ -0,0 +1,68 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.packages;
+
+import jakarta.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.List;
+import org.pqca.indexing.ProjectModule;
+import org.sonar.api.batch.fs.InputFile;
+
+/** A package together with its indexed modules and the size of its sources. */
+public record PackageWorkload(
+        @Nonnull PackageMetadata packageMetadata,
+        @Nonnull List<ProjectModule> modules,
+        int files,
+        long bytes) {
+
+    /** Orders workloads by decreasing cost, ties broken by package path. */
+    public static final Comparator<PackageWorkload> LARGEST_FIRST =
+            Comparator.comparingLong(PackageWorkload::cost)
+                    .reversed()
+                    .thenComparing(w -> w.packageMetadata().packageDir().getPath());
+
+    // fixed cost of a file (parsing setup, visitor bookkeeping) expressed in source bytes
+    private static final long FILE_OVERHEAD_BYTES = 8 * 1024L;
+
+    @Nonnull
+    public static PackageWorkload of(
+            @Nonnull PackageMetadata packageMetadata, @Nonnull List<ProjectModule> modules) {
+        int files = 0;
+        long bytes = 0;
+        for (ProjectModule module : modules) {
+            for (InputFile inputFile : module.inputFileList()) {
+                files++;
+                try {
+                    bytes += Files.size(inputFile.path());
+                } catch (IOException e) {
+                    // counted by the file overhead only
+                }
+            }
+        }
+        return new PackageWorkload(packageMetadata, modules, files, bytes);
+    }
+
+    /** Estimated scan cost of the package, used for balancing. */
+    public long cost() {
+        return bytes + files * FILE_OVERHEAD_BYTES;
+    }
+}
@@ -27,11 +27,26 @@ import java.io.FileReader;
 import java.nio.file.Path;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import org.pqca.indexing.DirectoryWalker;
+import org.pqca.indexing.IndexSnapshot;
 
 public class PythonPackageFinderService extends PackageFinderService {
 
     public PythonPackageFinderService(@Nonnull File rootFile) throws IllegalArgumentException {
-        super(rootFile);
+        this(rootFile, null);
+    }
+
+    public PythonPackageFinderService(@Nonnull File rootFile, @Nullable IndexSnapshot snapshot)
+            throws IllegalArgumentException {
+        this(rootFile, snapshot, null);
+    }
+
+    public PythonPackageFinderService(
+            @Nonnull File rootFile,
+            @Nullable IndexSnapshot snapshot,
+            @Nullable DirectoryWalker directoryWalker)
+            throws IllegalArgumentException {
+        super(rootFile, snapshot, directoryWalker);
     }
 
     @Override
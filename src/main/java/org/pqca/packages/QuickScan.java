@@ -0,0 +1,231 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.packages;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.pqca.indexing.ProjectModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Quick scan with a file and/or time budget, enabled by {@code CBOMKIT_QUICK_FILE_BUDGET} (number
+ * of files) or {@code CBOMKIT_QUICK_TIME_BUDGET} (seconds). Files are ranked by the number of
+ * distinct crypto tokens they contain, then by recency; the file budget keeps the top ranked files
+ * of the workloads, and the time budget, which starts with the first selection, stops scanning
+ * between modules. Modules are not split, to keep the resolution of types across their files, so
+ * the budget is overrun by the module being scanned when it runs out. The coverage of each package
+ * is recorded for the CBOM metadata.
+ *
+ * <p>Languages are selected one after the other, each with its own token list, so their
+ * relevance is not comparable and the candidates are not ranked across languages. Instead, the
+ * file budget is split in proportion to the number of files of each language: a selection takes
+ * the share of its files among the files of the languages still to be selected, and the last
+ * language takes what is left.
+ */
+public final class QuickScan {
+    private static final Logger LOG = LoggerFactory.getLogger(QuickScan.class);
+
+    public record Coverage(int files, int scanned) {
+        public int skipped() {
+            return files - scanned;
+        }
+    }
+
+    private record Candidate(@Nonnull InputFile inputFile, int relevance, long lastModified) {}
+
+    private static final Comparator<Candidate> PRIORITY =
+            Comparator.comparingInt(Candidate::relevance)
+                    .thenComparingLong(Candidate::lastModified)
+                    .reversed();
+
+    private final long timeBudgetMillis;
+    private int remainingFiles;
+    @Nonnull private final Map<File, Counters> coverage = new ConcurrentHashMap<>();
+    private volatile long deadline = Long.MAX_VALUE;
+
+    private static final class Counters {
+        private final int files;
+        @Nonnull private final AtomicInteger scanned;
+
+        private Counters(int files, int scanned) {
+            this.files = files;
+            this.scanned = new AtomicInteger(scanned);
+        }
+    }
+
+    /**
+     * @param fileBudget maximum number of files to scan, negative for no limit
+     * @param timeBudgetMillis time after which no further module is scanned, {@code 0} for no limit
+     */
+    public QuickScan(int fileBudget, long timeBudgetMillis) {
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.remainingFiles = fileBudget < 0 ? Integer.MAX_VALUE : fileBudget;
+    }
+
+    /** Returns the quick scan configured by the environment, or {@code null} for a full scan. */
+    @Nullable public static QuickScan fromEnvironment() {
+        final Optional<Integer> fileBudget =
+                Optional.ofNullable(System.getenv("CBOMKIT_QUICK_FILE_BUDGET"))
+                        .map(Integer::parseInt);
+        final Optional<Long> timeBudget =
+                Optional.ofNullable(System.getenv("CBOMKIT_QUICK_TIME_BUDGET"))
+                        .map(Long::parseLong);
+        if (fileBudget.isEmpty() && timeBudget.isEmpty()) {
+            return null;
+        }
+        LOG.info(
+                "Quick scan with a budget of {} files and {} seconds",
+                fileBudget.map(String::valueOf).orElse("unlimited"),
+                timeBudget.map(String::valueOf).orElse("unlimited"));
+        return new QuickScan(fileBudget.orElse(-1), timeBudget.orElse(0L) * 1000);
+    }
+
+    /**
+     * Restricts the workloads to the highest ranked files within their share of the remaining file
+     * budget, in priority order within each module, and drops the workloads left without files.
+     *
+     * @param laterFiles number of files of the languages selected after this one
+     */
+    @Nonnull
+    public List<PackageWorkload> select(
+            @Nonnull List<PackageWorkload> workloads,
+            @Nonnull List<String> cryptoTokens,
+            long laterFiles) {
+        startClock();
+        final List<Candidate> candidates = new ArrayList<>();
+        for (PackageWorkload workload : workloads) {
+            for (ProjectModule module : workload.modules()) {
+                for (InputFile inputFile : module.inputFileList()) {
+                    candidates.add(
+                            new Candidate(
+                                    inputFile,
+                                    getRelevance(inputFile, cryptoTokens),
+                                    inputFile.path().toFile().lastModified()));
+                }
+            }
+        }
+        candidates.sort(PRIORITY);
+        final int budget = take(candidates.size(), laterFiles);
+        final Map<InputFile, Integer> ranks = new HashMap<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            ranks.put(candidates.get(i).inputFile(), i);
+        }
+
+        final List<PackageWorkload> selected = new ArrayList<>();
+        for (PackageWorkload workload : workloads) {
+            final List<ProjectModule> modules = new ArrayList<>();
+            for (ProjectModule module : workload.modules()) {
+                final List<InputFile> files =
+                        module.inputFileList().stream()
+                                .filter(inputFile -> ranks.get(inputFile) < budget)
+                                .sorted(Comparator.comparing(ranks::get))
+                                .toList();
+                if (!files.isEmpty()) {
+                    modules.add(new ProjectModule(module.identifier(), files));
+                }
+            }
+            final PackageWorkload selectedWorkload =
+                    PackageWorkload.of(workload.packageMetadata(), modules);
+            // a directory may hold packages of several languages
+            coverage.merge(
+                    workload.packageMetadata().packageDir(),
+                    new Counters(workload.files(), selectedWorkload.files()),
+                    (a, b) -> new Counters(a.files + b.files, a.scanned.get() + b.scanned.get()));
+            if (!modules.isEmpty()) {
+                selected.add(selectedWorkload);
+            }
+        }
+        LOG.info(
+                "Quick scan selected {} of {} files in {} of {} packages",
+                budget,
+                candidates.size(),
+                selected.size(),
+                workloads.size());
+        return selected;
+    }
+
+    private synchronized void startClock() {
+        if (timeBudgetMillis > 0 && deadline == Long.MAX_VALUE) {
+            deadline = System.currentTimeMillis() + timeBudgetMillis;
+        }
+    }
+
+    /**
+     * Takes up to the given number of files from the remaining file budget, at most their share
+     * among these and the files of the languages selected later.
+     */
+    private synchronized int take(int files, long laterFiles) {
+        final long share = (long) remainingFiles * files / Math.max(1, files + laterFiles);
+        final int taken = (int) Math.min(share, files);
+        remainingFiles -= taken;
+        return taken;
+    }
+
+    /** Number of distinct crypto tokens in the file. */
+    private static int getRelevance(
+            @Nonnull InputFile inputFile, @Nonnull List<String> cryptoTokens) {
+        try {
+            final String contents = inputFile.contents();
+            return (int) cryptoTokens.stream().filter(contents::contains).count();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    public boolean isExhausted() {
+        return System.currentTimeMillis() >= deadline;
+    }
+
+    /** Records files of the package that were selected but not scanned within the time budget. */
+    public void skipped(@Nonnull File packageDir, int files) {
+        Optional.ofNullable(coverage.get(packageDir))
+                .ifPresent(counters -> counters.scanned.addAndGet(-files));
+    }
+
+    /** Coverage of the package, or {@code null} if it was not part of the quick scan. */
+    @Nullable public Coverage getCoverage(@Nonnull File packageDir) {
+        final Counters counters = coverage.get(packageDir);
+        return counters == null ? null : new Coverage(counters.files, counters.scanned.get());
+    }
+
+    /** Coverage summed over all packages of the quick scan. */
+    @Nonnull
+    public Coverage getCoverage() {
+        int files = 0;
+        int scanned = 0;
+        for (Counters counters : coverage.values()) {
+            files += counters.files;
+            scanned += counters.scanned.get();
+        }
+        return new Coverage(files, scanned);
+    }
+}
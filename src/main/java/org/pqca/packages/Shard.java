@@ -0,0 +1,93 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.packages;
+
+import jakarta.annotation.Nonnull;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Slice {@code index} (1-based) of {@code count} of the packages of a workspace. All shards
+ * compute the same partition: packages are assigned largest first to the least loaded shard, with
+ * ties broken by package path, so the shards are balanced by estimated scan cost.
+ */
+public record Shard(int index, int count) {
+    private static final Pattern SHARD = Pattern.compile("^\\s*(\\d+)\\s*/\\s*(\\d+)\\s*$");
+
+    public Shard {
+        if (count < 1 || index < 1 || index > count) {
+            throw new IllegalArgumentException("Invalid shard " + index + "/" + count);
+        }
+    }
+
+    /** Reads {@code CBOMKIT_SHARD}, e.g. {@code 2/4} for the second of four shards. */
+    @Nonnull
+    public static Optional<Shard> fromEnvironment() {
+        return Optional.ofNullable(System.getenv("CBOMKIT_SHARD")).map(Shard::parse);
+    }
+
+    @Nonnull
+    public static Shard parse(@Nonnull String shard) {
+        final Matcher matcher = SHARD.matcher(shard);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid shard '" + shard + "', expected i/N");
+        }
+        return new Shard(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+    }
+
+    /** Returns the workloads of this shard in their original order. */
+    @Nonnull
+    public List<PackageWorkload> select(@Nonnull List<PackageWorkload> workloads) {
+        final long[] load = new long[count];
+        final int[] assignment = new int[workloads.size()];
+        final List<Integer> largestFirst =
+                IntStream.range(0, workloads.size())
+                        .boxed()
+                        .sorted(Comparator.comparing(workloads::get, PackageWorkload.LARGEST_FIRST))
+                        .toList();
+        for (int i : largestFirst) {
+            int leastLoaded = 0;
+            for (int s = 1; s < count; s++) {
+                if (load[s] < load[leastLoaded]) {
+                    leastLoaded = s;
+                }
+            }
+            assignment[i] = leastLoaded;
+            load[leastLoaded] += workloads.get(i).cost();
+        }
+        return IntStream.range(0, workloads.size())
+                .filter(i -> assignment[i] == index - 1)
+                .mapToObj(workloads::get)
+                .toList();
+    }
+
+    /**
+     * File name without extension of a partial consolidated CBOM written by this shard, e.g.
+     * {@code cbom.shard-2-of-4} for prefix {@code cbom}.
+     */
+    @Nonnull
+    public String getCbomBaseName(@Nonnull String prefix) {
+        return prefix + ".shard-" + index + "-of-" + count;
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.scanning;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.cyclonedx.model.Component;
+import org.cyclonedx.model.component.evidence.Occurrence;
+import org.pqca.output.Compression;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compact index of the findings of a baseline CBOM. A finding is identified by the package of its
+ * component, its name and asset type, and the location and symbol of its occurrence, hashed to 64
+ * bits and kept in a sorted array. Occurrence locations are relative to the package, so the
+ * package is taken from the {@value #SUBFOLDER_PROPERTY} property of the component (absent for the
+ * workspace root package). The baseline is read with a streaming parser so that large CBOMs are
+ * never fully materialized.
+ *
+ * <p>Line and offset are not part of the identity, so that findings moved by edits elsewhere in
+ * their file are not reported as new. Identical findings of a file are told apart by their
+ * occurrence index instead: the n-th of them is in the baseline if the baseline has at least n,
+ * see {@link Matcher}.
+ */
+public final class BaselineIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(BaselineIndex.class);
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** Component property holding the package directory relative to the workspace. */
+    public static final String SUBFOLDER_PROPERTY = "subfolder";
+
+    @Nonnull private final File workspace;
+    // sorted, identical findings give repeated keys
+    @Nonnull private final long[] keys;
+
+    private BaselineIndex(@Nonnull File workspace, @Nonnull long[] keys) {
+        this.workspace = workspace;
+        this.keys = keys;
+    }
+
+    /** Loads the baseline CBOM given by {@code CBOMKIT_BASELINE_CBOM}, if set. */
+    @Nonnull
+    public static Optional<BaselineIndex> fromEnvironment(@Nonnull File workspace)
+            throws IOException {
+        final Optional<File> baselineFile =
+                Optional.ofNullable(System.getenv("CBOMKIT_BASELINE_CBOM")).map(File::new);
+        if (baselineFile.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(load(workspace, baselineFile.get()));
+    }
+
+    @Nonnull
+    public static BaselineIndex load(@Nonnull File workspace, @Nonnull File cbomFile)
+            throws IOException {
+        final long start = System.currentTimeMillis();
+        long[] keys = new long[1024];
+        int size = 0;
+        try (JsonParser parser =
+                new JsonFactory()
+                        .createParser(
+                                Compression.fromFileName(cbomFile.getName())
+                                        .decompress(
+                                                new BufferedInputStream(
+                                                        new FileInputStream(cbomFile))))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Baseline " + cbomFile + " is not a CBOM");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.currentName();
+                final JsonToken value = parser.nextToken();
+                if (!"components".equals(field) || value != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    for (long key : readComponent(parser)) {
+                        if (size == keys.length) {
+                            keys = Arrays.copyOf(keys, size * 2);
+                        }
+                        keys[size++] = key;
+                    }
+                }
+            }
+        }
+        keys = Arrays.copyOf(keys, size);
+        Arrays.sort(keys);
+        LOG.info(
+                "Loaded {} baseline findings from {} in {} ms",
+                size,
+                cbomFile,
+                System.currentTimeMillis() - start);
+        return new BaselineIndex(workspace, keys);
+    }
+
+    private record Location(@Nullable String location, @Nullable String symbol) {}
+
+    /** Reads one component object and returns the keys of its occurrences. */
+    @Nonnull
+    private static long[] readComponent(@Nonnull JsonParser parser) throws IOException {
+        String subfolder = null;
+        String name = null;
+        String assetType = null;
+        List<Location> locations = List.of();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "name" -> name = parser.getValueAsString();
+                case "cryptoProperties" -> assetType = readAssetType(parser);
+                case "evidence" -> locations = readOccurrences(parser);
+                case "properties" -> subfolder = readSubfolder(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        // name, asset type and package may follow the evidence
+        final long[] keys = new long[locations.size()];
+        for (int i = 0; i < keys.length; i++) {
+            final Location location = locations.get(i);
+            keys[i] = key(subfolder, name, assetType, location.location(), location.symbol());
+        }
+        return keys;
+    }
+
+    @Nullable
+    private static String readSubfolder(@Nonnull JsonParser parser) throws IOException {
+        String subfolder = null;
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String propertyName = null;
+            String value = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "name" -> propertyName = parser.getValueAsString();
+                    case "value" -> value = parser.getValueAsString();
+                    default -> parser.skipChildren();
+                }
+            }
+            if (SUBFOLDER_PROPERTY.equals(propertyName)) {
+                subfolder = value;
+            }
+        }
+        return subfolder;
+    }
+
+    @Nullable
+    private static String readAssetType(@Nonnull JsonParser parser) throws IOException {
+        String assetType = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.currentName();
+            parser.nextToken();
+            if ("assetType".equals(field)) {
+                assetType = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return assetType;
+    }
+
+    @Nonnull
+    private static List<Location> readOccurrences(@Nonnull JsonParser parser) throws IOException {
+        final List<Location> locations = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.currentName();
+            if (parser.nextToken() != JsonToken.START_ARRAY || !"occurrences".equals(field)) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String location = null;
+                String symbol = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String occurrenceField = parser.currentName();
+                    parser.nextToken();
+                    switch (occurrenceField) {
+                        case "location" -> location = parser.getValueAsString();
+                        case "symbol" -> symbol = parser.getValueAsString();
+                        default -> parser.skipChildren();
+                    }
+                }
+                locations.add(new Location(location, symbol));
+            }
+        }
+        return locations;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Package directory relative to the workspace as recorded in the {@value #SUBFOLDER_PROPERTY}
+     * property, or {@code null} for the workspace itself.
+     */
+    @Nullable
+    public static String getSubfolder(@Nonnull File workspace, @Nonnull File packageDir) {
+        if (packageDir.equals(workspace)) {
+            return null;
+        }
+        return workspace.toPath().relativize(packageDir.toPath()).toString();
+    }
+
+    @Nullable
+    public String getSubfolder(@Nonnull File packageDir) {
+        return getSubfolder(workspace, packageDir);
+    }
+
+    /** Returns a matcher for the findings of the given package, see {@link Matcher}. */
+    @Nonnull
+    public Matcher matcher(@Nonnull File packageDir) {
+        return new Matcher(getSubfolder(packageDir));
+    }
+
+    /** Number of baseline findings with the given key. */
+    private int count(long key) {
+        int index = Arrays.binarySearch(keys, key);
+        if (index < 0) {
+            return 0;
+        }
+        int first = index;
+        while (first > 0 && keys[first - 1] == key) {
+            first--;
+        }
+        int last = index;
+        while (last < keys.length - 1 && keys[last + 1] == key) {
+            last++;
+        }
+        return last - first + 1;
+    }
+
+    /**
+     * Matches the findings of one package against the baseline. Every occurrence of the package
+     * must be matched exactly once, as the matcher counts the identical findings it has seen.
+     */
+    public final class Matcher {
+        @Nullable private final String subfolder;
+        @Nonnull private final Map<Long, Integer> seen = new HashMap<>();
+
+        private Matcher(@Nullable String subfolder) {
+            this.subfolder = subfolder;
+        }
+
+        /**
+         * Checks whether the baseline has the given occurrence of the component. The occurrence
+         * location must be relative to the package, as in a written CBOM.
+         */
+        public boolean contains(@Nonnull Component component, @Nonnull Occurrence occurrence) {
+            return contains(
+                    component.getName(),
+                    getAssetType(component),
+                    occurrence.getLocation(),
+                    occurrence.getSymbol());
+        }
+
+        public synchronized boolean contains(
+                @Nullable String name,
+                @Nullable String assetType,
+                @Nullable String location,
+                @Nullable String symbol) {
+            final long key = key(subfolder, name, assetType, location, symbol);
+            final int index = seen.merge(key, 1, Integer::sum) - 1;
+            return index < count(key);
+        }
+    }
+
+    @Nullable
+    static String getAssetType(@Nonnull Component component) {
+        return component.getCryptoProperties() == null
+                        || component.getCryptoProperties().getAssetType() == null
+                ? null
+                : component.getCryptoProperties().getAssetType().getAssetType();
+    }
+
+    /** 64-bit FNV-1a hash of the identity of a finding. */
+    static long key(
+            @Nullable String subfolder,
+            @Nullable String name,
+            @Nullable String assetType,
+            @Nullable String location,
+            @Nullable String symbol) {
+        long hash = FNV_OFFSET_BASIS;
+        for (String part : new String[] {subfolder, name, assetType, location, symbol}) {
+            if (part != null) {
+                for (byte b : part.getBytes(StandardCharsets.UTF_8)) {
+                    hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+                }
+            }
+            hash = (hash ^ 0xff) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.scanning;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ibm.mapper.model.IAsset;
+import com.ibm.mapper.model.INode;
+import com.ibm.mapper.utils.DetectionLocation;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded LRU cache of the CycloneDX form of single findings, as needed for the delta CBOM and the
+ * findings stream. The key is a structural fingerprint of the translated nodes without their
+ * detection location, so a configuration such as {@code Cipher.getInstance("AES/GCM/NoPadding")}
+ * repeated across a code base is converted once, and later findings only re-bind the occurrence
+ * location, line and offset. Findings whose nodes come from more than one location are not
+ * cached. The size is set with {@code CBOMKIT_FINDING_CACHE_SIZE}; the cache is disabled by
+ * default ({@code 0}).
+ *
+ * <p>Only this conversion is cached, not the translation of the detections into nodes, which the
+ * rules run for every finding: the plugin fixes the detection location of translated assets, so
+ * translated nodes cannot be re-bound to another call site. Without a baseline, findings stream
+ * or policy, findings are not converted one by one and the cache is not used.
+ *
+ * <p>The fingerprint renders every node with {@link INode#asString()}, recursively, which can cost
+ * about as much as the conversion it saves. The cache therefore stays opt-in, and its statistics
+ * weigh the time spent fingerprinting and re-binding against the conversion time saved by its
+ * hits, estimated from the average conversion time of its misses.
+ */
+public final class FindingCache {
+    private static final Logger LOG = LoggerFactory.getLogger(FindingCache.class);
+
+    private static final FindingCache INSTANCE =
+            new FindingCache(
+                    Optional.ofNullable(System.getenv("CBOMKIT_FINDING_CACHE_SIZE"))
+                            .map(Integer::parseInt)
+                            .orElse(0));
+
+    /**
+     * Name and asset type of a converted component and the symbol of one of its occurrences, the
+     * identity used for the baseline.
+     */
+    record Identity(@Nullable String name, @Nullable String assetType, @Nullable String symbol) {}
+
+    /**
+     * Converted finding: the identities of its components and, when streaming, the components as a
+     * JSON array.
+     */
+    record Conversion(@Nonnull List<Identity> identities, @Nullable JsonNode components) {}
+
+    /** Conversion of a finding at a location; the location is relative to the project. */
+    record Finding(
+            @Nonnull Conversion conversion, @Nonnull String location, int line, int offset) {}
+
+    private final int maxSize;
+    @Nonnull private final Map<String, Conversion> conversions;
+    @Nonnull private final AtomicLong hits = new AtomicLong();
+    @Nonnull private final AtomicLong misses = new AtomicLong();
+    @Nonnull private final AtomicLong uncached = new AtomicLong();
+    @Nonnull private final AtomicLong fingerprintNanos = new AtomicLong();
+    @Nonnull private final AtomicLong conversionNanos = new AtomicLong();
+    @Nonnull private final AtomicLong rebindNanos = new AtomicLong();
+
+    private FindingCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.conversions =
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Conversion> eldest) {
+                        return size() > FindingCache.this.maxSize;
+                    }
+                };
+    }
+
+    @Nonnull
+    public static FindingCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the conversion of the finding, re-bound to its location, or {@code null} if the
+     * finding cannot be cached, in which case the caller converts it itself.
+     *
+     * @param converter converts the nodes of a finding, on a cache miss
+     * @param relativizer makes the detection file path relative to the project
+     */
+    @Nullable
+    Finding get(
+            @Nonnull List<INode> nodes,
+            @Nonnull Function<List<INode>, Conversion> converter,
+            @Nonnull Function<String, String> relativizer) {
+        if (maxSize <= 0) {
+            return null;
+        }
+        final long start = System.nanoTime();
+        final DetectionLocation[] location = new DetectionLocation[1];
+        final StringBuilder fingerprint = new StringBuilder();
+        for (INode node : nodes) {
+            if (!appendFingerprint(node, fingerprint, location)) {
+                fingerprintNanos.addAndGet(System.nanoTime() - start);
+                uncached.incrementAndGet();
+                return null;
+            }
+        }
+        fingerprintNanos.addAndGet(System.nanoTime() - start);
+        if (location[0] == null || location[0].filePath() == null) {
+            uncached.incrementAndGet();
+            return null;
+        }
+        final String key = fingerprint.toString();
+        Conversion conversion;
+        synchronized (conversions) {
+            conversion = conversions.get(key);
+        }
+        if (conversion == null) {
+            misses.incrementAndGet();
+            final long conversionStart = System.nanoTime();
+            conversion = converter.apply(nodes);
+            conversionNanos.addAndGet(System.nanoTime() - conversionStart);
+            synchronized (conversions) {
+                conversions.put(key, conversion);
+            }
+        } else {
+            hits.incrementAndGet();
+        }
+        return new Finding(
+                conversion,
+                relativizer.apply(location[0].filePath()),
+                location[0].lineNumber(),
+                location[0].offSet());
+    }
+
+    /**
+     * Appends kind, value and children of the node, and of assets the detection keywords and
+     * bundle. Returns {@code false} if an asset was detected at another location than the previous
+     * ones.
+     */
+    private static boolean appendFingerprint(
+            @Nonnull INode node,
+            @Nonnull StringBuilder fingerprint,
+            @Nonnull DetectionLocation[] location) {
+        fingerprint.append(node.getKind().getName()).append('=').append(node.asString());
+        if (node instanceof IAsset asset) {
+            final DetectionLocation detectionLocation = asset.getDetectionContext();
+            if (location[0] == null) {
+                location[0] = detectionLocation;
+            } else if (!isSameLocation(location[0], detectionLocation)) {
+                return false;
+            }
+            fingerprint
+                    .append('@')
+                    .append(detectionLocation.keywords())
+                    .append(
+                            detectionLocation.bundle() == null
+                                    ? null
+                                    : detectionLocation.bundle().getIdentifier());
+        }
+        fingerprint.append('{');
+        final List<INode> children =
+                node.getChildren().entrySet().stream()
+                        .sorted(Comparator.comparing(e -> e.getKey().getName()))
+                        .map(Map.Entry::getValue)
+                        .toList();
+        for (INode child : children) {
+            if (!appendFingerprint(child, fingerprint, location)) {
+                return false;
+            }
+        }
+        fingerprint.append('}');
+        return true;
+    }
+
+    private static boolean isSameLocation(
+            @Nonnull DetectionLocation a, @Nonnull DetectionLocation b) {
+        return a.lineNumber() == b.lineNumber()
+                && a.offSet() == b.offSet()
+                && a.filePath() != null
+                && a.filePath().equals(b.filePath());
+    }
+
+    /** Copy of the cached JSON components with all occurrences moved to the finding location. */
+    @Nullable
+    JsonNode rebind(@Nonnull Finding finding) {
+        final JsonNode cached = finding.conversion().components();
+        if (cached == null) {
+            return null;
+        }
+        final long start = System.nanoTime();
+        final JsonNode components = cached.deepCopy();
+        for (JsonNode component : components) {
+            for (JsonNode occurrence : component.path("evidence").path("occurrences")) {
+                if (occurrence instanceof ObjectNode occurrenceObject) {
+                    occurrenceObject
+                            .put("location", finding.location())
+                            .put("line", finding.line())
+                            .put("offset", finding.offset());
+                }
+            }
+        }
+        rebindNanos.addAndGet(System.nanoTime() - start);
+        return components;
+    }
+
+    public void logStatistics() {
+        final long lookups = hits.get() + misses.get();
+        if (lookups + uncached.get() == 0) {
+            return;
+        }
+        final long overheadNanos = fingerprintNanos.get() + rebindNanos.get();
+        final long savedNanos =
+                misses.get() == 0 ? 0 : conversionNanos.get() / misses.get() * hits.get();
+        LOG.info(
+                "Finding cache: {} hits, {} misses ({}% hit rate), {} findings not cacheable;"
+                        + " {} ms fingerprinting and re-binding, {} ms of conversions saved",
+                hits.get(),
+                misses.get(),
+                lookups == 0 ? 0 : hits.get() * 100 / lookups,
+                uncached.get(),
+                overheadNanos / 1_000_000,
+                savedNanos / 1_000_000);
+        if (overheadNanos > savedNanos) {
+            LOG.info("Finding cache costs more than it saves, consider disabling it");
+        }
+    }
+}
@@ -22,12 +22,34 @@ package org.pqca.scanning;
 import com.ibm.mapper.model.INode;
 import jakarta.annotation.Nonnull;
 import java.util.List;
-import java.util.function.Consumer;
 import org.cyclonedx.model.Bom;
 import org.pqca.indexing.ProjectModule;
+import org.sonar.api.batch.fs.InputFile;
 
-public interface IScannerService extends Consumer<List<INode>> {
+public interface IScannerService {
 
     @Nonnull
     Bom scan(@Nonnull List<ProjectModule> index) throws Exception;
+
+    /** Whether the scan was aborted, the detection rules then skip the remaining files. */
+    default boolean isAborted() {
+        return false;
+    }
+
+    /**
+     * Whether the calling thread was abandoned by the scan watchdog; the detection rules then drop
+     * their findings and skip the remaining files.
+     */
+    default boolean isAbandoned() {
+        return false;
+    }
+
+    /** Called before the detection rules visit the given file. */
+    default void fileStarted(@Nonnull InputFile inputFile) {}
+
+    /**
+     * Called after the detection rules have visited the given file, with the findings in it as one
+     * batch, each finding given by its translated nodes.
+     */
+    void fileFinished(@Nonnull InputFile inputFile, @Nonnull List<List<INode>> findings);
 }
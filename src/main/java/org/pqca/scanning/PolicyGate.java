@@ -0,0 +1,204 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.scanning;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Evaluates every finding, as soon as it is reported, against the rules of the file given by
+ * {@code CBOMKIT_POLICY_FILE}. Each line of the file holds a rule identifier and a regular
+ * expression, separated by whitespace, e.g. {@code weak-hash MD5|SHA-?1}; the expression must match
+ * the whole name of a CycloneDX component of the finding, ignoring case. Lines starting with
+ * {@code #} are comments.
+ *
+ * <p>Violations are logged and written to {@code policy-violations.tsv} in the output dir. With
+ * {@code CBOMKIT_POLICY_FAIL_FAST=true}, the first violation aborts the scan: remaining files and
+ * packages are skipped, and the CBOMs written contain the findings reported so far, including the
+ * violating one.
+ *
+ * <p>The gate fails closed: a policy file that cannot be read or holds an invalid rule fails the
+ * step before scanning, see {@link #hasLoadFailed()}.
+ */
+public final class PolicyGate {
+    private static final Logger LOG = LoggerFactory.getLogger(PolicyGate.class);
+    private static final String REPORT_FILE_NAME = "policy-violations.tsv";
+
+    private static final PolicyGate INSTANCE = fromEnvironment();
+
+    public record Rule(@Nonnull String id, @Nonnull Pattern pattern) {}
+
+    /** A component matching a rule, the location is relative to the package directory. */
+    public record Violation(
+            @Nonnull String ruleId,
+            @Nonnull String assetName,
+            @Nonnull File packageDir,
+            @Nullable String location,
+            int line) {}
+
+    @Nonnull private final List<Rule> rules;
+    private final boolean failFast;
+    private final boolean loadFailed;
+    @Nonnull private final List<Violation> violations = new ArrayList<>();
+    private volatile boolean aborted;
+
+    private PolicyGate(@Nonnull List<Rule> rules, boolean failFast, boolean loadFailed) {
+        this.rules = rules;
+        this.failFast = failFast;
+        this.loadFailed = loadFailed;
+    }
+
+    @Nonnull
+    public static PolicyGate getInstance() {
+        return INSTANCE;
+    }
+
+    @Nonnull
+    private static PolicyGate fromEnvironment() {
+        final String policyFile = System.getenv("CBOMKIT_POLICY_FILE");
+        if (policyFile == null) {
+            return new PolicyGate(List.of(), false, false);
+        }
+        final boolean failFast = Boolean.parseBoolean(System.getenv("CBOMKIT_POLICY_FAIL_FAST"));
+        try {
+            final List<Rule> rules = readRules(new File(policyFile));
+            LOG.info(
+                    "Checking findings against {} policy rules of {}{}",
+                    rules.size(),
+                    policyFile,
+                    failFast ? ", aborting at the first violation" : "");
+            return new PolicyGate(rules, failFast, false);
+        } catch (IOException | PatternSyntaxException e) {
+            LOG.error("Failed to load the policy file {}", policyFile, e);
+            return new PolicyGate(List.of(), false, true);
+        }
+    }
+
+    @Nonnull
+    private static List<Rule> readRules(@Nonnull File policyFile) throws IOException {
+        final List<Rule> rules = new ArrayList<>();
+        for (String line : Files.readAllLines(policyFile.toPath())) {
+            final String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            final String[] parts = trimmed.split("\\s+", 2);
+            if (parts.length < 2) {
+                throw new IOException("Policy rule without expression: " + line);
+            }
+            rules.add(new Rule(parts[0], Pattern.compile(parts[1], Pattern.CASE_INSENSITIVE)));
+        }
+        return rules;
+    }
+
+    /** Whether a policy file is configured but could not be loaded. */
+    public boolean hasLoadFailed() {
+        return loadFailed;
+    }
+
+    public boolean isEnabled() {
+        return !rules.isEmpty();
+    }
+
+    /** Whether a violation aborted the scan in fail-fast mode. */
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    public synchronized boolean hasViolations() {
+        return !violations.isEmpty();
+    }
+
+    /** Checks a component of a finding, returns whether it violates a rule. */
+    public boolean check(
+            @Nonnull File packageDir,
+            @Nullable String assetName,
+            @Nullable String location,
+            int line) {
+        if (assetName == null) {
+            return false;
+        }
+        for (Rule rule : rules) {
+            if (rule.pattern().matcher(assetName).matches()) {
+                violated(new Violation(rule.id(), assetName, packageDir, location, line));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void violated(@Nonnull Violation violation) {
+        synchronized (this) {
+            violations.add(violation);
+        }
+        LOG.error(
+                "Policy violation {}: {} in {} at {}:{}",
+                violation.ruleId(),
+                violation.assetName(),
+                violation.packageDir(),
+                violation.location(),
+                violation.line());
+        if (failFast && !aborted) {
+            aborted = true;
+            LOG.error("Aborting the scan, remaining files are skipped");
+        }
+    }
+
+    /** Writes the violations to {@code policy-violations.tsv} in the output dir. */
+    public void writeReport(@Nonnull File outputDir) {
+        if (!isEnabled()) {
+            return;
+        }
+        final File reportFile = new File(outputDir, REPORT_FILE_NAME);
+        try (FileWriter writer = new FileWriter(reportFile)) {
+            writer.write("rule\tasset\tpackage\tlocation\tline\n");
+            final int count;
+            synchronized (this) {
+                count = violations.size();
+                for (Violation violation : violations) {
+                    writer.write(
+                            violation.ruleId()
+                                    + "\t"
+                                    + violation.assetName()
+                                    + "\t"
+                                    + violation.packageDir()
+                                    + "\t"
+                                    + violation.location()
+                                    + "\t"
+                                    + violation.line()
+                                    + "\n");
+                }
+            }
+            LOG.info("Wrote {} policy violations to {}", count, reportFile);
+        } catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.scanning;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Enforces a per-file time and stack budget on scanning. Files are scanned on a worker thread
+ * with the configured stack size. A file that overflows the stack or makes no progress within the
+ * time budget is abandoned and recorded, and scanning continues with the remaining files using a
+ * fresh scanner. Abandoned worker threads are interrupted and left to die on their own; their
+ * callbacks are dropped. As a thread stuck in a loop keeps its CPU and heap, more than {@code
+ * CBOMKIT_MAX_ABANDONED_THREADS} (default {@code 8}) abandoned threads still running in the process
+ * stop the scan of further modules and fail the run, see {@link #hasTooManyAbandonedThreads()}.
+ */
+public final class ScanWatchdog {
+    private static final Logger LOG = LoggerFactory.getLogger(ScanWatchdog.class);
+
+    private static final long DEFAULT_FILE_TIMEOUT_SECONDS = 300;
+    private static final long DEFAULT_FILE_STACK_SIZE_MB = 64;
+    private static final long POLL_INTERVAL_MILLIS = 500;
+    private static final int DEFAULT_MAX_ABANDONED_THREADS = 8;
+
+    // worker threads abandoned by the watchdogs of all packages, until they are seen dead
+    private static final Set<Thread> ABANDONED_THREADS = ConcurrentHashMap.newKeySet();
+    private static final AtomicInteger ABANDONED_THREAD_COUNT = new AtomicInteger();
+    private static volatile boolean tooManyAbandonedThreads;
+
+    @FunctionalInterface
+    public interface FileScanner {
+        void scan(@Nonnull List<InputFile> files);
+    }
+
+    public record AbandonedFile(@Nonnull Path file, @Nonnull String reason, long elapsedMillis) {}
+
+    private record Failure(@Nullable InputFile file, @Nonnull String reason) {}
+
+    private final long fileTimeoutMillis;
+    private final long stackSize;
+    private final int maxAbandonedThreads;
+
+    private final List<AbandonedFile> abandonedFiles =
+            Collections.synchronizedList(new ArrayList<>());
+    private final Set<InputFile> finishedFiles = ConcurrentHashMap.newKeySet();
+
+    @Nullable private volatile Thread worker;
+    @Nullable private volatile InputFile currentFile;
+    private volatile long lastProgress;
+
+    /**
+     * @param fileTimeoutMillis maximum time without progress on a single file, {@code 0} disables
+     *     the time budget
+     * @param stackSize stack size in bytes of the worker threads, {@code 0} uses the JVM default
+     * @param maxAbandonedThreads number of abandoned threads still running in the process above
+     *     which the run fails
+     */
+    public ScanWatchdog(long fileTimeoutMillis, long stackSize, int maxAbandonedThreads) {
+        this.fileTimeoutMillis = fileTimeoutMillis;
+        this.stackSize = stackSize;
+        this.maxAbandonedThreads = maxAbandonedThreads;
+    }
+
+    /**
+     * Creates a watchdog configured by {@code CBOMKIT_FILE_TIMEOUT} (seconds), {@code
+     * CBOMKIT_FILE_STACK_SIZE} (megabytes) and {@code CBOMKIT_MAX_ABANDONED_THREADS}. Setting the
+     * first two to {@code 0} scans on the calling thread without any budget.
+     */
+    @Nonnull
+    public static ScanWatchdog fromEnvironment() {
+        final long timeoutSeconds =
+                Optional.ofNullable(System.getenv("CBOMKIT_FILE_TIMEOUT"))
+                        .map(Long::parseLong)
+                        .orElse(DEFAULT_FILE_TIMEOUT_SECONDS);
+        final long stackSizeMb =
+                Optional.ofNullable(System.getenv("CBOMKIT_FILE_STACK_SIZE"))
+                        .map(Long::parseLong)
+                        .orElse(DEFAULT_FILE_STACK_SIZE_MB);
+        final int maxAbandonedThreads =
+                Optional.ofNullable(System.getenv("CBOMKIT_MAX_ABANDONED_THREADS"))
+                        .map(Integer::parseInt)
+                        .orElse(DEFAULT_MAX_ABANDONED_THREADS);
+        return new ScanWatchdog(
+                TimeUnit.SECONDS.toMillis(timeoutSeconds),
+                stackSizeMb * 1024 * 1024,
+                maxAbandonedThreads);
+    }
+
+    public boolean isEnabled() {
+        return fileTimeoutMillis > 0 || stackSize > 0;
+    }
+
+    /**
+     * Scans the files with the given scanner. When a file is abandoned, the scanner is replaced by
+     * a new one from {@code replacement}, because the abandoned worker may still be using it.
+     *
+     * @return the scanner to use for subsequent scans
+     */
+    @Nonnull
+    public FileScanner scan(
+            @Nonnull String name,
+            @Nonnull List<InputFile> files,
+            @Nonnull FileScanner scanner,
+            @Nonnull Supplier<FileScanner> replacement) {
+        if (!isEnabled()) {
+            scanner.scan(files);
+            return scanner;
+        }
+
+        FileScanner current = scanner;
+        final Deque<List<InputFile>> pending = new ArrayDeque<>();
+        pending.add(files);
+        while (!pending.isEmpty()) {
+            final List<InputFile> batch = pending.poll();
+            final Optional<Failure> failure = runWorker(name, current, batch);
+            if (failure.isEmpty()) {
+                continue;
+            }
+            current = replacement.get();
+
+            final InputFile offender = failure.get().file();
+            final List<InputFile> rest =
+                    batch.stream()
+                            .filter(f -> !finishedFiles.contains(f) && !f.equals(offender))
+                            .toList();
+            if (offender != null) {
+                abandon(offender, failure.get().reason());
+                if (!rest.isEmpty()) {
+                    pending.addFirst(rest);
+                }
+            } else if (batch.size() == 1) {
+                abandon(batch.get(0), failure.get().reason());
+            } else {
+                // the failure happened outside of a file visit (e.g. while parsing a batch),
+                // scan the rest file by file to find the offending one
+                for (int i = rest.size() - 1; i >= 0; i--) {
+                    pending.addFirst(List.of(rest.get(i)));
+                }
+            }
+        }
+        return current;
+    }
+
+    @Nonnull
+    private Optional<Failure> runWorker(
+            @Nonnull String name, @Nonnull FileScanner scanner, @Nonnull List<InputFile> files) {
+        finishedFiles.clear();
+        currentFile = null;
+        lastProgress = System.currentTimeMillis();
+
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        final Thread thread =
+                new Thread(
+                        null,
+                        () -> {
+                            try {
+                                scanner.scan(files);
+                                done.complete(null);
+                            } catch (Throwable t) {
+                                done.completeExceptionally(t);
+                            }
+                        },
+                        "scan-" + name,
+                        stackSize);
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+
+        try {
+            while (true) {
+                try {
+                    done.get(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    return Optional.empty();
+                } catch (TimeoutException e) {
+                    if (fileTimeoutMillis > 0
+                            && System.currentTimeMillis() - lastProgress > fileTimeoutMillis) {
+                        abandonThread(thread);
+                        return Optional.of(new Failure(currentFile, "timeout"));
+                    }
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof StackOverflowError) {
+                        return Optional.of(new Failure(currentFile, "stack overflow"));
+                    }
+                    if (cause instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    if (cause instanceof Error error) {
+                        throw error;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandonThread(thread);
+            throw new IllegalStateException("Interrupted while scanning " + name, e);
+        } finally {
+            worker = null;
+        }
+    }
+
+    private void abandonThread(@Nonnull Thread thread) {
+        ABANDONED_THREADS.add(thread);
+        ABANDONED_THREAD_COUNT.incrementAndGet();
+        thread.interrupt();
+        ABANDONED_THREADS.removeIf(abandoned -> !abandoned.isAlive());
+        final int running = ABANDONED_THREADS.size();
+        if (running > maxAbandonedThreads && !tooManyAbandonedThreads) {
+            tooManyAbandonedThreads = true;
+            LOG.error(
+                    "{} abandoned scan threads are still running, more than {}; no further"
+                            + " module is scanned and the run fails",
+                    running,
+                    maxAbandonedThreads);
+        }
+    }
+
+    private void abandon(@Nonnull InputFile file, @Nonnull String reason) {
+        final long elapsed = System.currentTimeMillis() - lastProgress;
+        LOG.warn("Abandoned file {} after {} ms ({})", file, elapsed, reason);
+        abandonedFiles.add(new AbandonedFile(Path.of(file.uri()), reason, elapsed));
+    }
+
+    public void fileStarted(@Nonnull InputFile inputFile) {
+        if (Thread.currentThread() == worker) {
+            currentFile = inputFile;
+            lastProgress = System.currentTimeMillis();
+        }
+    }
+
+    public void fileFinished(@Nonnull InputFile inputFile) {
+        if (Thread.currentThread() == worker) {
+            finishedFiles.add(inputFile);
+            currentFile = null;
+            lastProgress = System.currentTimeMillis();
+        }
+    }
+
+    /** Callbacks from threads that were abandoned must be dropped. */
+    public static boolean isAbandoned(@Nonnull Thread thread) {
+        return ABANDONED_THREADS.contains(thread);
+    }
+
+    /**
+     * Whether more than {@code CBOMKIT_MAX_ABANDONED_THREADS} abandoned threads were running at
+     * once, which stops the scan and fails the run.
+     */
+    public static boolean hasTooManyAbandonedThreads() {
+        return tooManyAbandonedThreads;
+    }
+
+    /** Logs the number of abandoned worker threads of the run and of those still running. */
+    public static void logStatistics() {
+        if (ABANDONED_THREAD_COUNT.get() == 0) {
+            return;
+        }
+        ABANDONED_THREADS.removeIf(abandoned -> !abandoned.isAlive());
+        LOG.warn(
+                "Scan watchdog: {} worker threads abandoned, {} still running",
+                ABANDONED_THREAD_COUNT.get(),
+                ABANDONED_THREADS.size());
+    }
+
+    @Nonnull
+    public List<AbandonedFile> getAbandonedFiles() {
+        synchronized (abandonedFiles) {
+            return List.copyOf(abandonedFiles);
+        }
+    }
+}
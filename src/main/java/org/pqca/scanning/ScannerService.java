@@ -19,61 +19,333 @@
  */
 package org.pqca.scanning;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.ibm.mapper.model.INode;
-import com.ibm.output.IOutputFileFactory;
 import com.ibm.output.cyclondx.CBOMOutputFile;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.cyclonedx.model.Bom;
 import org.cyclonedx.model.Component;
 import org.cyclonedx.model.Evidence;
 import org.cyclonedx.model.component.evidence.Occurrence;
+import org.pqca.metrics.ProgressReporter;
+import org.pqca.metrics.ScanEvents;
+import org.pqca.metrics.StartupMetrics;
+import org.pqca.output.FindingsStream;
+import org.pqca.packages.QuickScan;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
 
 public abstract class ScannerService implements IScannerService {
     protected static final Logger LOGGER = LoggerFactory.getLogger(ScannerService.class);
 
     @Nonnull protected final File projectDirectory;
     @Nonnull protected final CBOMOutputFile cbomOutputFile;
+    @Nonnull protected final ScanWatchdog watchdog;
+    @Nonnull protected final ProgressReporter progress = ProgressReporter.getInstance();
+    @Nonnull private final FindingsStream findingsStream = FindingsStream.getInstance();
+    @Nonnull private final FindingCache findingCache = FindingCache.getInstance();
+    @Nonnull private final PolicyGate policyGate = PolicyGate.getInstance();
+    // matches the findings of this package against the baseline
+    @Nullable private final BaselineIndex.Matcher baseline;
+    @Nullable private final CBOMOutputFile deltaOutputFile;
+    @Nullable private final QuickScan quickScan;
+    @Nonnull private final Map<String, String> relativeLocations = new ConcurrentHashMap<>();
+    @Nonnull private final AtomicInteger findingsCount = new AtomicInteger();
+    // findings are reported on the thread visiting the file
+    @Nonnull private final ThreadLocal<ScanEvents.FileVisit> fileVisit = new ThreadLocal<>();
 
-    protected ScannerService(@Nonnull File projectDirectory) {
+    /**
+     * @param baseline findings of a baseline CBOM; when given, the findings not in the baseline
+     *     are also collected into a delta CBOM, see {@link #getDeltaBOM()}
+     * @param quickScan budget of a quick scan, checked between modules
+     */
+    protected ScannerService(
+            @Nonnull File projectDirectory,
+            @Nullable BaselineIndex baseline,
+            @Nullable QuickScan quickScan) {
         this.projectDirectory = projectDirectory;
+        this.quickScan = quickScan;
         this.cbomOutputFile = new CBOMOutputFile();
+        this.watchdog = ScanWatchdog.fromEnvironment();
+        this.baseline = baseline == null ? null : baseline.matcher(projectDirectory);
+        this.deltaOutputFile = baseline == null ? null : new CBOMOutputFile();
+    }
+
+    /**
+     * Adds the findings of a file to the CBOM under one lock, then to the delta CBOM and the
+     * findings stream, and checks them against the policy. A violating finding is in the CBOM
+     * before a fail-fast policy aborts the scan.
+     */
+    private void accept(@Nonnull List<List<INode>> findings) {
+        if (findings.isEmpty()) {
+            return;
+        }
+        if (!findingsStream.isStreamOnly()) {
+            final List<INode> nodes = findings.stream().flatMap(List::stream).toList();
+            // not synchronized on this: scan() may hold that monitor while waiting for a worker
+            synchronized (this.cbomOutputFile) {
+                this.cbomOutputFile.add(nodes);
+            }
+        }
+        progress.findingsAdded(findings.size());
+        findingsCount.addAndGet(findings.size());
+        final ScanEvents.FileVisit event = fileVisit.get();
+        if (event != null) {
+            event.findings += findings.size();
+        }
+        if (this.deltaOutputFile == null
+                && !findingsStream.isEnabled()
+                && !policyGate.isEnabled()) {
+            return;
+        }
+
+        final List<INode> newNodes = new ArrayList<>();
+        for (List<INode> nodes : findings) {
+            if (acceptFinding(nodes)) {
+                newNodes.addAll(nodes);
+            }
+        }
+        if (this.deltaOutputFile != null && !newNodes.isEmpty()) {
+            synchronized (this.deltaOutputFile) {
+                this.deltaOutputFile.add(newNodes);
+            }
+        }
+    }
+
+    /**
+     * Streams the finding, checks it against the policy and returns whether it is new compared to
+     * the baseline, if any.
+     */
+    private boolean acceptFinding(@Nonnull List<INode> nodes) {
+        final FindingCache.Finding finding =
+                findingCache.get(nodes, this::convert, this::relativeLocation);
+        if (finding == null) {
+            // sanitized components of this finding only
+            final List<Component> components = getComponents(nodes);
+            findingsStream.write(projectDirectory, components);
+            checkPolicy(components);
+            return this.deltaOutputFile != null && isNewFinding(components);
+        }
+        final JsonNode components = findingCache.rebind(finding);
+        if (components != null) {
+            findingsStream.write(projectDirectory, components);
+        }
+        checkPolicy(finding);
+        return this.deltaOutputFile != null && isNewFinding(finding);
+    }
+
+    private void checkPolicy(@Nonnull List<Component> components) {
+        if (!policyGate.isEnabled()) {
+            return;
+        }
+        for (Component component : components) {
+            for (Occurrence occurrence : getOccurrences(component)) {
+                policyGate.check(
+                        projectDirectory,
+                        component.getName(),
+                        occurrence.getLocation(),
+                        Optional.ofNullable(occurrence.getLine()).orElse(-1));
+            }
+        }
+    }
+
+    private void checkPolicy(@Nonnull FindingCache.Finding finding) {
+        if (!policyGate.isEnabled()) {
+            return;
+        }
+        for (FindingCache.Identity identity : finding.conversion().identities()) {
+            policyGate.check(
+                    projectDirectory, identity.name(), finding.location(), finding.line());
+        }
+    }
+
+    /** Converts the nodes of one finding to sanitized components. */
+    @Nonnull
+    private List<Component> getComponents(@Nonnull List<INode> nodes) {
+        final CBOMOutputFile findingOutputFile = new CBOMOutputFile();
+        findingOutputFile.add(nodes);
+        final List<Component> components =
+                Optional.ofNullable(findingOutputFile.getBom().getComponents())
+                        .orElse(Collections.emptyList());
+        components.forEach(this::sanitizeOccurrence);
+        return components;
+    }
+
+    @Nonnull
+    private FindingCache.Conversion convert(@Nonnull List<INode> nodes) {
+        final List<Component> components = getComponents(nodes);
+        final List<FindingCache.Identity> identities = new ArrayList<>();
+        for (Component component : components) {
+            for (Occurrence occurrence : getOccurrences(component)) {
+                identities.add(
+                        new FindingCache.Identity(
+                                component.getName(),
+                                BaselineIndex.getAssetType(component),
+                                occurrence.getSymbol()));
+            }
+        }
+        return new FindingCache.Conversion(
+                identities, findingsStream.isEnabled() ? findingsStream.toJson(components) : null);
+    }
+
+    /**
+     * Checks whether any occurrence of the finding is missing from the baseline. All occurrences
+     * are matched, as the matcher counts them.
+     */
+    private boolean isNewFinding(@Nonnull List<Component> components) {
+        boolean isNew = false;
+        for (Component component : components) {
+            for (Occurrence occurrence : getOccurrences(component)) {
+                isNew |= !baseline.contains(component, occurrence);
+            }
+        }
+        return isNew;
+    }
+
+    /** Checks whether any occurrence of the cached finding is missing from the baseline. */
+    private boolean isNewFinding(@Nonnull FindingCache.Finding finding) {
+        boolean isNew = false;
+        for (FindingCache.Identity identity : finding.conversion().identities()) {
+            isNew |=
+                    !baseline.contains(
+                            identity.name(),
+                            identity.assetType(),
+                            finding.location(),
+                            identity.symbol());
+        }
+        return isNew;
+    }
+
+    @Nonnull
+    private static List<Occurrence> getOccurrences(@Nonnull Component component) {
+        return Optional.ofNullable(component.getEvidence())
+                .map(Evidence::getOccurrences)
+                .orElse(Collections.emptyList());
+    }
+
+    @Override
+    public void fileStarted(@Nonnull InputFile inputFile) {
+        StartupMetrics.fileStarted(inputFile);
+        watchdog.fileStarted(inputFile);
+        final ScanEvents.FileVisit event = new ScanEvents.FileVisit();
+        event.begin();
+        fileVisit.set(event);
+    }
+
+    /** Restarts the visit event of the current file, so that it does not include the parse. */
+    protected void fileParsed() {
+        final ScanEvents.FileVisit event = fileVisit.get();
+        if (event != null) {
+            event.begin();
+        }
     }
 
     @Override
-    public void accept(@Nonnull final List<INode> nodes) {
-        synchronized (this) {
-            this.cbomOutputFile.add(nodes);
+    public void fileFinished(@Nonnull InputFile inputFile, @Nonnull List<List<INode>> findings) {
+        if (isAbandoned()) {
+            // the package cbom may already be written
+            return;
+        }
+        accept(findings);
+        watchdog.fileFinished(inputFile);
+        progress.fileFinished();
+        final ScanEvents.FileVisit event = fileVisit.get();
+        fileVisit.remove();
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = inputFile.toString();
+                event.bytes = inputFile.path().toFile().length();
+                event.commit();
+            }
         }
-        // No need to emit sanitized occurences
-        // final CBOMOutputFileFactory fileFactory = new CBOMOutputFileFactory();
-        // final CBOMOutputFile componentAsCBOM = fileFactory.createOutputFormat(nodes);
-        // componentAsCBOM
-        //         .getBom()
-        //         .getComponents()
-        //         .forEach(component -> sanitizeOccurrence(this.projectDirectory, component))ß;
+    }
+
+    /**
+     * Checks the time budget of the quick scan and whether the policy aborted the scan before a
+     * module, counting its files as skipped otherwise. Modules are scanned as a whole, as splitting
+     * them would lose the resolution of types across their files, so the budget may be overrun by
+     * the module being scanned when it runs out.
+     */
+    protected boolean shouldScan(@Nonnull List<InputFile> files) {
+        final boolean exhausted = quickScan != null && quickScan.isExhausted();
+        if (!exhausted && !isAborted()) {
+            return true;
+        }
+        if (quickScan != null) {
+            quickScan.skipped(projectDirectory, files.size());
+        }
+        progress.addFilesTotal(-files.size());
+        return false;
+    }
+
+    /**
+     * Whether a fail-fast policy aborted the scan, see {@link PolicyGate}, or too many abandoned
+     * threads are still running, see {@link ScanWatchdog}.
+     */
+    @Override
+    public boolean isAborted() {
+        return policyGate.isAborted() || ScanWatchdog.hasTooManyAbandonedThreads();
+    }
+
+    @Override
+    public boolean isAbandoned() {
+        return ScanWatchdog.isAbandoned(Thread.currentThread());
+    }
+
+    /** Number of findings accepted so far. */
+    protected int getFindingsCount() {
+        return findingsCount.get();
+    }
+
+    @Nonnull
+    public List<ScanWatchdog.AbandonedFile> getAbandonedFiles() {
+        return watchdog.getAbandonedFiles();
     }
 
     @Nonnull
-    protected synchronized Bom getBOM() {
-        final Bom bom = this.cbomOutputFile.getBom();
+    protected Bom getBOM() {
+        final Bom bom;
+        synchronized (this.cbomOutputFile) {
+            bom = this.cbomOutputFile.getBom();
+        }
         // sanitizeOccurrence
-        bom.getComponents().forEach(component -> sanitizeOccurrence(projectDirectory, component));
-        // reset scanner
-        final com.ibm.plugin.ScannerManager scannerMgr =
-                new com.ibm.plugin.ScannerManager(IOutputFileFactory.DEFAULT);
-        scannerMgr.reset();
+        bom.getComponents().forEach(component -> sanitizeOccurrence(component));
+        return bom;
+    }
 
+    /**
+     * Returns the findings that are not in the baseline, or {@code null} when scanning without a
+     * baseline.
+     */
+    @Nullable
+    public Bom getDeltaBOM() {
+        if (this.deltaOutputFile == null) {
+            return null;
+        }
+        final Bom bom;
+        synchronized (this.deltaOutputFile) {
+            bom = this.deltaOutputFile.getBom();
+        }
+        bom.getComponents().forEach(component -> sanitizeOccurrence(component));
         return bom;
     }
 
-    static void sanitizeOccurrence(
-            @Nonnull final File projectDirectory, @Nonnull Component component) {
+    /**
+     * Makes the occurrence locations relative to the project directory. Each distinct location is
+     * relativized once and the resulting string is shared by all its occurrences.
+     */
+    void sanitizeOccurrence(@Nonnull Component component) {
         List<Occurrence> occurrenceList =
                 Optional.ofNullable(component.getEvidence())
                         .map(Evidence::getOccurrences)
@@ -82,13 +354,25 @@ public abstract class ScannerService implements IScannerService {
         if (occurrenceList.isEmpty()) {
             return;
         }
-        final String baseDirPath = projectDirectory.getAbsolutePath();
         occurrenceList.forEach(
                 occurrence -> {
-                    if (occurrence.getLocation().startsWith(baseDirPath)) {
-                        occurrence.setLocation(
-                                occurrence.getLocation().substring(baseDirPath.length() + 1));
+                    if (occurrence.getLocation() != null) {
+                        occurrence.setLocation(relativeLocation(occurrence.getLocation()));
                     }
                 });
     }
+
+    @Nonnull
+    private String relativeLocation(@Nonnull String location) {
+        return relativeLocations.computeIfAbsent(location, this::relativize);
+    }
+
+    @Nonnull
+    private String relativize(@Nonnull String location) {
+        final String baseDirPath = projectDirectory.getAbsolutePath();
+        if (location.startsWith(baseDirPath)) {
+            return location.substring(baseDirPath.length() + 1);
+        }
+        return location;
+    }
 }
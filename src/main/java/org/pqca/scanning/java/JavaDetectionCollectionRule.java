@@ -23,24 +23,80 @@ import com.ibm.engine.detection.Finding;
 import com.ibm.mapper.model.INode;
 import com.ibm.plugin.rules.JavaInventoryRule;
 import jakarta.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.function.Consumer;
+import org.pqca.metrics.RuleProfiler;
+import org.pqca.metrics.ScanEvents;
+import org.pqca.scanning.IScannerService;
 import org.sonar.plugins.java.api.JavaCheck;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.tree.Tree;
 
 public class JavaDetectionCollectionRule extends JavaInventoryRule {
-    private final Consumer<List<INode>> handler;
+    private final IScannerService handler;
+    private final RuleProfiler profiler = RuleProfiler.getInstance();
+    // findings of the current file, handed over when the file is left
+    private final List<List<INode>> fileFindings = new ArrayList<>();
+    // time spent in update(), which runs nested in visitNode() and is not detection
+    private long updateNanos;
+    // files are still parsed after an abort, as the frontend scans the module at once
+    private boolean skipFile;
 
-    public JavaDetectionCollectionRule(@Nonnull Consumer<List<INode>> findingConsumer) {
+    public JavaDetectionCollectionRule(@Nonnull IScannerService findingConsumer) {
         this.handler = findingConsumer;
     }
 
+    @Override
+    public void setContext(@Nonnull JavaFileScannerContext context) {
+        super.setContext(context);
+        fileFindings.clear();
+        skipFile = handler.isAborted() || handler.isAbandoned();
+        handler.fileStarted(context.getInputFile());
+    }
+
+    @Override
+    public void visitNode(@Nonnull Tree tree) {
+        if (skipFile) {
+            return;
+        }
+        final long updateNanosBefore = updateNanos;
+        final long start = profiler.start();
+        super.visitNode(tree);
+        profiler.record("detect", "java", start, updateNanos - updateNanosBefore);
+    }
+
+    @Override
+    public void leaveFile(@Nonnull JavaFileScannerContext context) {
+        super.leaveFile(context);
+        handler.fileFinished(context.getInputFile(), List.copyOf(fileFindings));
+        fileFindings.clear();
+    }
+
     @Override
     public void update(@Nonnull Finding<JavaCheck, Tree, Symbol, JavaFileScannerContext> finding) {
-        super.update(finding);
+        if (handler.isAbandoned()) {
+            return;
+        }
+        final long updateStart = profiler.start();
+        // the base update() is not called: it translates the finding a second time for the
+        // static aggregator of the plugin, while the cboms are built from the nodes handed over
+        final ScanEvents.Translation event = new ScanEvents.Translation();
+        final long start = profiler.start();
+        event.begin();
         final List<INode> nodes = javaTranslationProcess.initiate(finding.detectionStore());
-        handler.accept(nodes);
+        event.end();
+        if (profiler.isEnabled()) {
+            profiler.record("translate", RuleProfiler.getBundle(finding), start);
+        }
+        if (event.shouldCommit()) {
+            event.language = "java";
+            event.nodes = nodes.size();
+            event.commit();
+        }
+        fileFindings.add(nodes);
+        if (profiler.isEnabled()) {
+            updateNanos += System.nanoTime() - updateStart;
+        }
     }
 }
@@ -20,10 +20,16 @@
 package org.pqca.scanning.java;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import java.io.File;
 import java.util.List;
+import java.util.function.Supplier;
 import org.cyclonedx.model.Bom;
 import org.pqca.indexing.ProjectModule;
+import org.pqca.metrics.ScanEvents;
+import org.pqca.packages.QuickScan;
+import org.pqca.scanning.BaselineIndex;
+import org.pqca.scanning.ScanWatchdog;
 import org.pqca.scanning.ScannerService;
 import org.sonar.api.batch.fs.internal.DefaultFileSystem;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
@@ -43,12 +49,19 @@ public final class JavaScannerService extends ScannerService {
     private static final JavaVersion JAVA_VERSION =
             new JavaVersionImpl(JavaVersionImpl.MAX_SUPPORTED);
 
-    @Nonnull private final String getJavaDependencyJARSPath;
+    @Nonnull private final String javaLibraries;
 
+    /**
+     * @param javaLibraries comma separated jars for {@code sonar.java.libraries}, see {@link
+     *     org.pqca.classpath.JavaClasspathService}
+     */
     public JavaScannerService(
-            @Nonnull String getJavaDependencyJARSPath, @Nonnull File projectDirectory) {
-        super(projectDirectory);
-        this.getJavaDependencyJARSPath = getJavaDependencyJARSPath;
+            @Nonnull String javaLibraries,
+            @Nonnull File projectDirectory,
+            @Nullable BaselineIndex baseline,
+            @Nullable QuickScan quickScan) {
+        super(projectDirectory, baseline, quickScan);
+        this.javaLibraries = javaLibraries;
     }
 
     @Override
@@ -64,7 +77,7 @@ public final class JavaScannerService extends ScannerService {
         sensorContext.setSettings(
                 new MapSettings()
                         .setProperty(SonarComponents.SONAR_BATCH_MODE_KEY, true)
-                        .setProperty("sonar.java.libraries", this.getJavaDependencyJARSPath)
+                        .setProperty("sonar.java.libraries", this.javaLibraries)
                         .setProperty(
                                 "sonar.java.binaries",
                                 new File(this.projectDirectory, "target/classes").toString())
@@ -82,28 +95,57 @@ public final class JavaScannerService extends ScannerService {
 
         final JavaResourceLocator javaResourceLocator =
                 new DefaultJavaResourceLocator(classpathForMain, classpathForTest);
-        final JavaFrontend javaFrontend =
-                new JavaFrontend(
-                        JAVA_VERSION,
-                        sonarComponents,
-                        null,
-                        javaResourceLocator,
-                        null,
-                        new JavaDetectionCollectionRule(this));
+        final Supplier<ScanWatchdog.FileScanner> javaScanners =
+                () -> createJavaScanner(sonarComponents, javaResourceLocator);
 
+        ScanWatchdog.FileScanner javaScanner = javaScanners.get();
         int counter = 1;
         for (ProjectModule project : index) {
             final String projectStr =
                     project.identifier() + " (" + counter + "/" + index.size() + ")";
             LOGGER.info("Scanning project " + projectStr);
+            progress.moduleStarted(project.identifier(), project.inputFileList().size());
+            final ScanEvents.ModuleScan event = new ScanEvents.ModuleScan();
+            final int findingsBefore = getFindingsCount();
+            event.begin();
 
-            javaFrontend.scan(project.inputFileList(), List.of(), List.of());
+            if (shouldScan(project.inputFileList())) {
+                javaScanner =
+                        watchdog.scan(
+                                project.identifier(),
+                                project.inputFileList(),
+                                javaScanner,
+                                javaScanners);
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.module = project.identifier();
+                event.files = project.inputFileList().size();
+                event.findings = getFindingsCount() - findingsBefore;
+                event.commit();
+            }
+            progress.moduleFinished(project.identifier());
             counter++;
         }
 
         return this.getBOM();
     }
 
+    @Nonnull
+    private ScanWatchdog.FileScanner createJavaScanner(
+            @Nonnull SonarComponents sonarComponents,
+            @Nonnull JavaResourceLocator javaResourceLocator) {
+        final JavaFrontend javaFrontend =
+                new JavaFrontend(
+                        JAVA_VERSION,
+                        sonarComponents,
+                        null,
+                        javaResourceLocator,
+                        null,
+                        new JavaDetectionCollectionRule(this));
+        return files -> javaFrontend.scan(files, List.of(), List.of());
+    }
+
     @Nonnull
     private static SonarComponents getSonarComponents(
             DefaultFileSystem fileSystem,
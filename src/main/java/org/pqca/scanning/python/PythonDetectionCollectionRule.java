@@ -23,24 +23,63 @@ import com.ibm.engine.detection.Finding;
 import com.ibm.mapper.model.INode;
 import com.ibm.plugin.rules.PythonInventoryRule;
 import jakarta.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.function.Consumer;
+import org.pqca.metrics.RuleProfiler;
+import org.pqca.metrics.ScanEvents;
+import org.pqca.scanning.ScanWatchdog;
 import org.sonar.plugins.python.api.PythonCheck;
 import org.sonar.plugins.python.api.PythonVisitorContext;
 import org.sonar.plugins.python.api.symbols.Symbol;
 import org.sonar.plugins.python.api.tree.Tree;
 
 public class PythonDetectionCollectionRule extends PythonInventoryRule {
-    private final Consumer<List<INode>> handler;
+    private final RuleProfiler profiler = RuleProfiler.getInstance();
+    // findings of the current file, see takeFileFindings()
+    private final List<List<INode>> fileFindings = new ArrayList<>();
+    // time spent in update(), which runs nested in scanFile() and is not detection
+    private long updateNanos;
 
-    public PythonDetectionCollectionRule(@Nonnull Consumer<List<INode>> findingConsumer) {
-        this.handler = findingConsumer;
+    @Override
+    public void scanFile(@Nonnull PythonVisitorContext context) {
+        final long updateNanosBefore = updateNanos;
+        final long start = profiler.start();
+        super.scanFile(context);
+        profiler.record("detect", "python", start, updateNanos - updateNanosBefore);
     }
 
     @Override
     public void update(@Nonnull Finding<PythonCheck, Tree, Symbol, PythonVisitorContext> finding) {
-        super.update(finding);
+        if (ScanWatchdog.isAbandoned(Thread.currentThread())) {
+            return;
+        }
+        final long updateStart = profiler.start();
+        // the base update() is not called: it translates the finding a second time for the
+        // static aggregator of the plugin, while the cboms are built from the nodes handed over
+        final ScanEvents.Translation event = new ScanEvents.Translation();
+        final long start = profiler.start();
+        event.begin();
         final List<INode> nodes = pythonTranslationProcess.initiate(finding.detectionStore());
-        handler.accept(nodes);
+        event.end();
+        if (profiler.isEnabled()) {
+            profiler.record("translate", RuleProfiler.getBundle(finding), start);
+        }
+        if (event.shouldCommit()) {
+            event.language = "python";
+            event.nodes = nodes.size();
+            event.commit();
+        }
+        fileFindings.add(nodes);
+        if (profiler.isEnabled()) {
+            updateNanos += System.nanoTime() - updateStart;
+        }
+    }
+
+    /** Returns the findings of the file scanned last, and clears them. */
+    @Nonnull
+    public List<List<INode>> takeFileFindings() {
+        final List<List<INode>> findings = List.copyOf(fileFindings);
+        fileFindings.clear();
+        return findings;
     }
 }
@@ -20,26 +20,31 @@
 package org.pqca.scanning.python;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import java.io.File;
 import java.util.List;
 import org.cyclonedx.model.Bom;
 import org.pqca.indexing.ProjectModule;
+import org.pqca.metrics.ScanEvents;
+import org.pqca.packages.QuickScan;
+import org.pqca.scanning.BaselineIndex;
+import org.pqca.scanning.ScanWatchdog;
 import org.pqca.scanning.ScannerService;
 import org.sonar.api.batch.fs.InputFile;
-import org.sonar.plugins.python.api.PythonCheck;
 import org.sonar.plugins.python.api.PythonVisitorContext;
 import org.sonar.plugins.python.api.tree.FileInput;
 
 public final class PythonScannerService extends ScannerService {
 
-    public PythonScannerService(@Nonnull File projectDirectory) {
-        super(projectDirectory);
+    public PythonScannerService(
+            @Nonnull File projectDirectory,
+            @Nullable BaselineIndex baseline,
+            @Nullable QuickScan quickScan) {
+        super(projectDirectory, baseline, quickScan);
     }
 
     @Override
     public @Nonnull Bom scan(@Nonnull List<ProjectModule> index) {
-        final PythonCheck visitor = new PythonDetectionCollectionRule(this);
-
         LOGGER.info("Start scanning {} python projects", index.size());
 
         int counter = 1;
@@ -47,21 +52,61 @@ public final class PythonScannerService extends ScannerService {
             final String projectStr =
                     project.identifier() + " (" + counter + "/" + index.size() + ")";
             LOGGER.info("Scanning project " + projectStr);
+            progress.moduleStarted(project.identifier(), project.inputFileList().size());
+            final ScanEvents.ModuleScan event = new ScanEvents.ModuleScan();
+            final int findingsBefore = getFindingsCount();
+            event.begin();
 
-            for (InputFile inputFile : project.inputFileList()) {
+            if (shouldScan(project.inputFileList())) {
+                watchdog.scan(
+                        project.identifier(),
+                        project.inputFileList(),
+                        createPythonScanner(project.identifier()),
+                        () -> createPythonScanner(project.identifier()));
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.module = project.identifier();
+                event.files = project.inputFileList().size();
+                event.findings = getFindingsCount() - findingsBefore;
+                event.commit();
+            }
+            progress.moduleFinished(project.identifier());
+            counter++;
+        }
+
+        return this.getBOM();
+    }
+
+    @Nonnull
+    private ScanWatchdog.FileScanner createPythonScanner(@Nonnull String moduleIdentifier) {
+        final PythonDetectionCollectionRule visitor = new PythonDetectionCollectionRule();
+        return files -> {
+            for (InputFile inputFile : files) {
+                if (isAborted() || isAbandoned()) {
+                    return;
+                }
+                fileStarted(inputFile);
                 final PythonScannableFile pythonScannableFile = new PythonScannableFile(inputFile);
+                final ScanEvents.FileParse parseEvent = new ScanEvents.FileParse();
+                parseEvent.begin();
                 final FileInput parsedFile = pythonScannableFile.parse();
+                parseEvent.end();
+                if (parseEvent.shouldCommit()) {
+                    parseEvent.path = inputFile.toString();
+                    parseEvent.bytes = inputFile.path().toFile().length();
+                    parseEvent.commit();
+                }
+                fileParsed();
                 final PythonVisitorContext context =
                         new PythonVisitorContext(
                                 parsedFile,
                                 pythonScannableFile,
                                 this.projectDirectory,
-                                project.identifier());
+                                moduleIdentifier);
                 visitor.scanFile(context);
+                fileFinished(inputFile, visitor.takeFileFindings());
             }
-            counter++;
-        }
-
-        return this.getBOM();
+        };
     }
 }
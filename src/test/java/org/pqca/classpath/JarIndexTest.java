@@ -0,0 +1,100 @@
+/*
+ * CBOMkit-action
+ * Copyright (C) 2025 PQCA
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pqca.classpath;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JarIndexTest {
+    @TempDir File jarDir;
+
+    private JarIndex index;
+    private File bcprov;
+    private File bcpkix;
+
+    @BeforeEach
+    void buildIndex() throws IOException {
+        bcprov =
+                writeJar(
+                        "bcprov.jar",
+                        List.of(
+                                "org/bouncycastle/crypto/Digest.class",
+                                "org/bouncycastle/crypto/digests/MD5Digest.class"));
+        bcpkix = writeJar("bcpkix.jar", List.of("org/bouncycastle/pkix/Pkix.class"));
+        final File indexFile = new File(jarDir, JarIndex.DEFAULT_FILE_NAME);
+        JarIndexBuilder.build(jarDir, indexFile);
+        index = JarIndex.load(jarDir, indexFile.toPath());
+    }
+
+    @Test
+    void exactMatch() {
+        assertEquals(3, index.getPackageCount());
+        assertEquals(Set.of(bcprov), index.getJars("org.bouncycastle.crypto"));
+        assertEquals(Set.of(bcpkix), index.getJars("org.bouncycastle.pkix"));
+    }
+
+    @Test
+    void nameBeforeFirstEntry() {
+        assertTrue(index.getJars("com.example").isEmpty());
+        assertTrue(index.getJarsForPrefix("com").isEmpty());
+    }
+
+    @Test
+    void nameAfterLastEntry() {
+        assertTrue(index.getJars("sun.misc").isEmpty());
+        assertTrue(index.getJars("sun.misc.Unsafe").isEmpty());
+        assertTrue(index.getJarsForPrefix("sun").isEmpty());
+    }
+
+    @Test
+    void nameBetweenEntries() {
+        assertTrue(index.getJars("org.bouncycastle.jce").isEmpty());
+    }
+
+    @Test
+    void prefix() {
+        assertTrue(index.getJars("org.bouncycastle").isEmpty());
+        assertEquals(Set.of(bcprov, bcpkix), index.getJarsForPrefix("org.bouncycastle"));
+        assertEquals(Set.of(bcprov), index.getJarsForPrefix("org.bouncycastle.crypto"));
+        assertTrue(index.getJarsForPrefix("org.bouncy").isEmpty());
+    }
+
+    private File writeJar(String name, List<String> entries) throws IOException {
+        final File jar = new File(jarDir, name);
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            for (String entry : entries) {
+                out.putNextEntry(new JarEntry(entry));
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+}
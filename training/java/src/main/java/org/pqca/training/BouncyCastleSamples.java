@@ -0,0 +1,25 @@
+package org.pqca.training;
+
+import org.bouncycastle.crypto.BlockCipher;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.modes.GCMBlockCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+
+public class BouncyCastleSamples {
+
+    public void encrypt(byte[] key, byte[] nonce) {
+        BlockCipher engine = AESEngine.newInstance();
+        GCMBlockCipher cipher = (GCMBlockCipher) GCMBlockCipher.newInstance(engine);
+        cipher.init(true, new AEADParameters(new KeyParameter(key), 128, nonce));
+    }
+
+    public byte[] digest(byte[] data) {
+        SHA256Digest digest = new SHA256Digest();
+        digest.update(data, 0, data.length);
+        byte[] out = new byte[digest.getDigestSize()];
+        digest.doFinal(out, 0);
+        return out;
+    }
+}
@@ -0,0 +1,33 @@
+import os
+
+from cryptography.hazmat.primitives import hashes, hmac
+from cryptography.hazmat.primitives.asymmetric import ec, padding, rsa
+from cryptography.hazmat.primitives.ciphers.aead import AESGCM
+
+
+def encrypt(data: bytes) -> bytes:
+    key = AESGCM.generate_key(bit_length=256)
+    return AESGCM(key).encrypt(os.urandom(12), data, None)
+
+
+def digest(data: bytes) -> bytes:
+    h = hashes.Hash(hashes.SHA256())
+    h.update(data)
+    return h.finalize()
+
+
+def mac(key: bytes, data: bytes) -> bytes:
+    h = hmac.HMAC(key, hashes.SHA256())
+    h.update(data)
+    return h.finalize()
+
+
+def sign(data: bytes) -> bytes:
+    private_key = rsa.generate_private_key(public_exponent=65537, key_size=3072)
+    return private_key.sign(data, padding.PKCS1v15(), hashes.SHA256())
+
+
+def exchange():
+    private_key = ec.generate_private_key(ec.SECP384R1())
+    peer_key = ec.generate_private_key(ec.SECP384R1())
+    return private_key.exchange(ec.ECDH(), peer_key.public_key())